@@ -0,0 +1,21 @@
+-- Orders schema for the embedded Derby profile
+CREATE TABLE orders (
+	ID INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	ORDER_NO VARCHAR(32) NOT NULL,
+	PRODUCT_NAME VARCHAR(100) NOT NULL,
+	PRICE_CENTS BIGINT NOT NULL,
+	QUANTITY INT NOT NULL,
+	VERSION INT NOT NULL DEFAULT 0
+);
+
+CREATE UNIQUE INDEX UX_ORDERS_ORDER_NO ON orders (ORDER_NO);
+
+CREATE INDEX IX_ORDERS_PRODUCT ON orders (PRODUCT_NAME, PRICE_CENTS, QUANTITY);
+
+CREATE TABLE orders_version (
+	ID INT NOT NULL PRIMARY KEY,
+	VERSION BIGINT NOT NULL,
+	LAST_MODIFIED BIGINT NOT NULL
+);
+
+INSERT INTO orders_version (ID, VERSION, LAST_MODIFIED) VALUES (1, 0, 0);
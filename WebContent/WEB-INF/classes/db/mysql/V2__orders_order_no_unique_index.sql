@@ -0,0 +1,3 @@
+-- Single-order lookups by order number (OrdersDataService.findByOrderNo) read through this index.
+-- Lookups by ID use the primary key. Remove duplicate ORDER_NO values before applying.
+CREATE UNIQUE INDEX UX_ORDERS_ORDER_NO ON orders (ORDER_NO);
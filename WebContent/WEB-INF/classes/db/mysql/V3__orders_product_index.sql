@@ -0,0 +1,3 @@
+-- Product filters and the per-product totals (OrdersDataService.findMatching and summarizeByProduct) read through this index.
+-- It covers PRICE and QUANTITY so the totals are computed from the index without reading the table rows.
+CREATE INDEX IX_ORDERS_PRODUCT ON orders (PRODUCT_NAME, PRICE, QUANTITY);
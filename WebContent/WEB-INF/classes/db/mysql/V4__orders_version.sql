@@ -0,0 +1,3 @@
+-- Row version for optimistic concurrency. OrdersDataService.update only changes a row whose VERSION matches the
+-- version the client read, and increments it. Existing rows start at 0.
+ALTER TABLE orders ADD COLUMN VERSION INT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- Prices as a whole number of cents. OrdersDataService reads and writes PRICE_CENTS with integer arithmetic, so
+-- prices and per-product totals are exact. Existing FLOAT prices are rounded to the nearest cent.
+ALTER TABLE orders ADD COLUMN PRICE_CENTS BIGINT NOT NULL DEFAULT 0;
+UPDATE orders SET PRICE_CENTS = ROUND(PRICE * 100);
+ALTER TABLE orders ALTER COLUMN PRICE_CENTS DROP DEFAULT;
+DROP INDEX IX_ORDERS_PRODUCT ON orders;
+ALTER TABLE orders DROP COLUMN PRICE;
+CREATE INDEX IX_ORDERS_PRODUCT ON orders (PRODUCT_NAME, PRICE_CENTS, QUANTITY);
@@ -0,0 +1,4 @@
+-- Version of the orders table, in one row. OrdersDataService increments VERSION after every change it makes to orders,
+-- so every node tags its responses with the same version, which survives restarts and reaches replicas with the rows.
+CREATE TABLE orders_version (ID INT NOT NULL PRIMARY KEY, VERSION BIGINT NOT NULL, LAST_MODIFIED BIGINT NOT NULL);
+INSERT INTO orders_version (ID, VERSION, LAST_MODIFIED) VALUES (1, 0, ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000));
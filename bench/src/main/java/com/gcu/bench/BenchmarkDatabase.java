@@ -0,0 +1,133 @@
+package com.gcu.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.gcu.data.OrdersDataService;
+import com.gcu.model.Order;
+
+/**
+ * The BenchmarkDatabase creates a seeded in-memory Derby orders table for a benchmark trial
+ * @author Josh Van de Walle
+ *
+ */
+public class BenchmarkDatabase 
+{
+	// keeps every trial on its own database
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+	
+	// keeps order numbers created during a trial unique
+	private static final AtomicInteger ORDERS = new AtomicInteger(Integer.MIN_VALUE);
+	
+	// orders table, matching the application schema
+	private static final String SCHEMA = "CREATE TABLE orders ("
+			+ "ID INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+			+ "ORDER_NO VARCHAR(32) NOT NULL, "
+			+ "PRODUCT_NAME VARCHAR(100) NOT NULL, "
+			+ "PRICE_CENTS BIGINT NOT NULL, "
+			+ "QUANTITY INT NOT NULL, "
+			+ "VERSION INT NOT NULL DEFAULT 0)";
+	private static final String ORDER_NO_INDEX = "CREATE UNIQUE INDEX UX_ORDERS_ORDER_NO ON orders (ORDER_NO)";
+	private static final String PRODUCT_INDEX = "CREATE INDEX IX_ORDERS_PRODUCT ON orders (PRODUCT_NAME, PRICE_CENTS, QUANTITY)";
+	
+	// version row of the orders table, which every write increments
+	private static final String VERSION_TABLE = "CREATE TABLE orders_version (ID INT NOT NULL PRIMARY KEY, VERSION BIGINT NOT NULL, LAST_MODIFIED BIGINT NOT NULL)";
+	private static final String VERSION_ROW = "INSERT INTO orders_version (ID, VERSION, LAST_MODIFIED) VALUES (1, 0, 0)";
+	
+	private final String name;
+	private final BasicDataSource dataSource;
+	private final OrdersDataService dataService;
+	
+	/**
+	 * This constructor creates the database and seeds it
+	 * @param rows the number of orders to seed
+	 */
+	public BenchmarkDatabase(int rows)
+	{
+		name = "bench" + DATABASES.incrementAndGet();
+		
+		// pool sized for the benchmark threads
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+		dataSource.setUrl("jdbc:derby:memory:" + name + ";create=true");
+		dataSource.setMaxTotal(16);
+		dataSource.setPoolPreparedStatements(true);
+		new JdbcTemplate(dataSource).execute(SCHEMA);
+		new JdbcTemplate(dataSource).execute(ORDER_NO_INDEX);
+		new JdbcTemplate(dataSource).execute(PRODUCT_INDEX);
+		new JdbcTemplate(dataSource).execute(VERSION_TABLE);
+		new JdbcTemplate(dataSource).execute(VERSION_ROW);
+		
+		// data service under test
+		dataService = new OrdersDataService();
+		dataService.setDataSource(dataSource);
+		
+		// seed the table
+		List<Order> orders = new ArrayList<Order>(rows);
+		for (int i = 0; i < rows; i++)
+		{
+			orders.add(newOrder(i));
+		}
+		if (!orders.isEmpty())
+		{
+			dataService.createAll(orders);
+		}
+	}
+	
+	/**
+	 * This method builds a valid order
+	 * @param i a number that makes the order distinct
+	 * @return a new order
+	 */
+	public static Order newOrder(int i)
+	{
+		return new Order("ORD-" + i, "Product " + (i % 50), 125 + (i % 100) * 100, 1 + (i % 10));
+	}
+	
+	/**
+	 * This method builds a valid order with an order number no other order in the trial has
+	 * @return a new order
+	 */
+	public static Order uniqueOrder()
+	{
+		return newOrder(ORDERS.getAndIncrement());
+	}
+	
+	/**
+	 * This method finds the highest order ID in the table
+	 * @return the highest ID, or 0 when the table is empty
+	 */
+	public int maxId()
+	{
+		Integer max = new JdbcTemplate(dataSource).queryForObject("SELECT MAX(ID) FROM orders", Integer.class);
+		return max == null ? 0 : max;
+	}
+	
+	public OrdersDataService getDataService() {
+		return dataService;
+	}
+	
+	public BasicDataSource getDataSource() {
+		return dataSource;
+	}
+	
+	/**
+	 * This method closes the pool and drops the in-memory database
+	 */
+	public void close()
+	{
+		try 
+		{
+			dataSource.close();
+			java.sql.DriverManager.getConnection("jdbc:derby:memory:" + name + ";drop=true");
+		}
+		catch (Exception e)
+		{
+			// Derby reports a successful drop as an exception
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.gcu.bench;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.gcu.business.OrdersBusinessService;
+import com.gcu.model.Order;
+import com.gcu.service.OrderService;
+import com.gcu.util.RestDto;
+import com.gcu.util.cache.LruCache;
+
+/**
+ * Benchmarks of the OrderService handlers with the business and data layers wired the way the application wires them
+ * @author Josh Van de Walle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark 
+{
+	// number of orders seeded before the trial
+	@Param({ "100", "10000" })
+	public int rows;
+	
+	// whether the business layer reads through the orders cache
+	@Param({ "false", "true" })
+	public boolean cached;
+	
+	// whether handlers run on a thread pool, as in the application, or on the calling thread
+	@Param({ "false", "true" })
+	public boolean pooled;
+	
+	private BenchmarkDatabase database;
+	private OrderService orderService;
+	private ThreadPoolTaskExecutor executor;
+	
+	// ETag of the orders as seeded
+	private String etag;
+
+	@Setup
+	public void setUp()
+	{
+		database = new BenchmarkDatabase(rows);
+		
+		// wire the layers
+		OrdersBusinessService business = new OrdersBusinessService();
+		business.setService(database.getDataService());
+		if (cached)
+		{
+			business.setCache(new LruCache<Order>());
+		}
+		orderService = new OrderService();
+		orderService.setOrdersService(business);
+		orderService.setValidator(new SpringValidatorAdapter(Validation.buildDefaultValidatorFactory().getValidator()));
+		if (pooled)
+		{
+			executor = new ThreadPoolTaskExecutor();
+			executor.setCorePoolSize(Runtime.getRuntime().availableProcessors());
+			executor.setThreadNamePrefix("orders-");
+			executor.initialize();
+			orderService.setExecutor(executor);
+		}
+		else
+		{
+			orderService.setExecutor(Runnable::run);
+		}
+		
+		// read the ETag a polling client would send back
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		await(orderService.handleGet(0, null, new ServletWebRequest(new MockHttpServletRequest("GET", "/service/getOrders"), response)));
+		etag = response.getHeader("ETag");
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		if (executor != null)
+		{
+			executor.shutdown();
+		}
+		database.close();
+	}
+	
+	/**
+	 * Builds a GET request, optionally conditional on an ETag
+	 */
+	private static ServletWebRequest get(String etag)
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/service/getOrders");
+		if (etag != null)
+		{
+			request.addHeader("If-None-Match", etag);
+		}
+		return new ServletWebRequest(request, new MockHttpServletResponse());
+	}
+	
+	/**
+	 * Waits for a handler to complete its deferred result, or returns null for a 304
+	 */
+	@SuppressWarnings("unchecked")
+	private static RestDto<Order> await(DeferredResult<RestDto<Order>> result)
+	{
+		if (result == null)
+		{
+			return null;
+		}
+		CompletableFuture<RestDto<Order>> done = new CompletableFuture<RestDto<Order>>();
+		result.setResultHandler(value -> done.complete((RestDto<Order>) value));
+		return done.join();
+	}
+
+	@Benchmark
+	public RestDto<Order> handleGet()
+	{
+		return await(orderService.handleGet(0, null, get(null)));
+	}
+	
+	@Benchmark
+	public RestDto<Order> handleGetNotModified()
+	{
+		return await(orderService.handleGet(0, null, get(etag)));
+	}
+	
+	@Benchmark
+	public RestDto<Order> handleGetById()
+	{
+		return await(orderService.handleGetById(1 + ThreadLocalRandom.current().nextInt(rows), get(null)));
+	}
+	
+	@Benchmark
+	public RestDto<Order> handleGetPage()
+	{
+		return await(orderService.handleGet(ThreadLocalRandom.current().nextInt(rows), 100, get(null)));
+	}
+	
+	@Benchmark
+	public RestDto<Order> handlePlace()
+	{
+		Order order = BenchmarkDatabase.uniqueOrder();
+		return await(orderService.handlePlace(order, new BeanPropertyBindingResult(order, "order"), null));
+	}
+	
+	@Benchmark
+	public RestDto<Order> handleEdit()
+	{
+		// read-modify-write, as a client does to send the version it read
+		Order order = database.getDataService().findById(1 + ThreadLocalRandom.current().nextInt(rows));
+		order.setQuantity(1 + order.getQuantity() % 10);
+		return await(orderService.handleEdit(order, new BeanPropertyBindingResult(order, "order"), null));
+	}
+}
@@ -0,0 +1,155 @@
+package com.gcu.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gcu.data.OrdersDataService;
+import com.gcu.model.Order;
+import com.gcu.model.OrderFilter;
+import com.gcu.model.ProductSummary;
+
+/**
+ * Benchmarks of the OrdersDataService read and write paths against embedded Derby
+ * @author Josh Van de Walle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrdersDataServiceBenchmark 
+{
+	// number of orders seeded before the trial
+	@Param({ "100", "10000" })
+	public int rows;
+	
+	private BenchmarkDatabase database;
+	private OrdersDataService service;
+	
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		database = new BenchmarkDatabase(rows);
+		service = database.getDataService();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		database.close();
+	}
+
+	@Benchmark
+	public List<Order> findAll()
+	{
+		return service.findAll();
+	}
+	
+	@Benchmark
+	public Order findById()
+	{
+		return service.findById(1 + ThreadLocalRandom.current().nextInt(rows));
+	}
+	
+	@Benchmark
+	public Order findByOrderNo()
+	{
+		return service.findByOrderNo("ORD-" + ThreadLocalRandom.current().nextInt(rows));
+	}
+	
+	@Benchmark
+	public List<Order> findPage()
+	{
+		return service.findPage(ThreadLocalRandom.current().nextInt(rows), 100);
+	}
+	
+	@Benchmark
+	public List<Order> findMatching()
+	{
+		OrderFilter filter = new OrderFilter();
+		filter.setProductName("Product " + ThreadLocalRandom.current().nextInt(50));
+		filter.setMinQuantity(5);
+		return service.findMatching(filter, Order.Sort.TOTAL, true, 100);
+	}
+	
+	@Benchmark
+	public List<ProductSummary> summarizeByProduct()
+	{
+		return service.summarizeByProduct(new OrderFilter(), ProductSummary.Sort.REVENUE, true, 10);
+	}
+	
+	@Benchmark
+	public int streamAll(Blackhole blackhole)
+	{
+		return service.streamAll(blackhole::consume);
+	}
+	
+	@Benchmark
+	public boolean create()
+	{
+		return service.create(BenchmarkDatabase.uniqueOrder());
+	}
+	
+	@Benchmark
+	public boolean[] createAll()
+	{
+		// one chunk of a bulk insert, which reads back the IDs the orders were stored with
+		List<Order> orders = new ArrayList<Order>(100);
+		for (int i = 0; i < 100; i++)
+		{
+			orders.add(BenchmarkDatabase.uniqueOrder());
+		}
+		return service.createAll(orders);
+	}
+	
+	@Benchmark
+	public boolean update()
+	{
+		// read-modify-write, as a client does to send the version it read
+		Order order = service.findById(1 + ThreadLocalRandom.current().nextInt(rows));
+		order.setQuantity(1 + order.getQuantity() % 10);
+		return service.update(order);
+	}
+	
+	@Benchmark
+	public boolean delete(Deletable deletable)
+	{
+		return service.delete(deletable.order);
+	}
+	
+	/**
+	 * An order inserted before each delete invocation so the table size stays constant
+	 */
+	@State(Scope.Thread)
+	public static class Deletable
+	{
+		Order order;
+		
+		@Setup(Level.Invocation)
+		public void insert(OrdersDataServiceBenchmark benchmark)
+		{
+			benchmark.service.create(BenchmarkDatabase.uniqueOrder());
+			order = new Order(benchmark.database.maxId(), null, null, 0, 0);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.gcu.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.gcu.model.Order;
+import com.gcu.util.RestDto;
+
+/**
+ * Benchmarks of Jackson serialization of RestDto responses at different sizes
+ * @author Josh Van de Walle
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RestDtoSerializationBenchmark 
+{
+	// number of orders in the response
+	@Param({ "1", "100", "10000" })
+	public int rows;
+	
+	private final ObjectMapper mapper = new ObjectMapper();
+	private ObjectWriter writer;
+	private ObjectWriter smileWriter;
+	private RestDto<Order> dto;
+
+	@Setup
+	public void setUp()
+	{
+		// build the response
+		List<Order> orders = new ArrayList<Order>(rows);
+		for (int i = 0; i < rows; i++)
+		{
+			Order order = BenchmarkDatabase.newOrder(i);
+			order.setId(i + 1);
+			orders.add(order);
+		}
+		dto = new RestDto<Order>(orders, 200, "OK");
+		
+		// writer bound to the response type up front
+		writer = mapper.writerFor(new TypeReference<RestDto<Order>>() {});
+		smileWriter = new ObjectMapper(new SmileFactory()).writerFor(new TypeReference<RestDto<Order>>() {});
+	}
+
+	@Benchmark
+	public byte[] objectMapper() throws Exception
+	{
+		return mapper.writeValueAsBytes(dto);
+	}
+	
+	@Benchmark
+	public byte[] prebuiltWriter() throws Exception
+	{
+		return writer.writeValueAsBytes(dto);
+	}
+	
+	@Benchmark
+	public byte[] prebuiltSmileWriter() throws Exception
+	{
+		return smileWriter.writeValueAsBytes(dto);
+	}
+	
+	@Benchmark
+	public byte[] prebuiltWriterDeflated() throws Exception
+	{
+		// JSON compressed at the level the compression filter uses
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater))
+		{
+			writer.writeValue(out, dto);
+		}
+		finally
+		{
+			deflater.end();
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,167 @@
+package com.gcu.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionReaderUtils;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.SessionScope;
+
+import com.gcu.business.OrdersBusinessInterface;
+import com.gcu.business.OrdersBusinessService;
+import com.gcu.data.OrdersDataService;
+
+/**
+ * Benchmarks of the order service beans wired as session-scoped proxies, as they were, against the singletons the
+ * application now uses. Run with -prof gc to compare the bytes allocated per call and per new session
+ * @author Josh Van de Walle
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceScopeBenchmark
+{
+	private BenchmarkDatabase database;
+	private GenericApplicationContext context;
+
+	// session-scoped proxy, and the request of the session it is called in
+	private OrdersBusinessInterface sessionService;
+	private ServletRequestAttributes sessionRequest;
+
+	// singleton shared by every request
+	private OrdersBusinessInterface singletonService;
+
+	@Setup
+	public void setUp()
+	{
+		database = new BenchmarkDatabase(0);
+		context = new GenericApplicationContext();
+		context.getBeanFactory().registerScope(WebApplicationContext.SCOPE_SESSION, new SessionScope());
+		context.getBeanFactory().registerSingleton("dataSource", database.getDataSource());
+
+		// the session-scoped wiring: each session builds a data service, with its own JDBC template, and a business service
+		register(BeanDefinitionBuilder.genericBeanDefinition(OrdersDataService.class)
+				.setScope(WebApplicationContext.SCOPE_SESSION)
+				.addPropertyReference("dataSource", "dataSource")
+				.getBeanDefinition(), "sessionDataService", true);
+		register(BeanDefinitionBuilder.genericBeanDefinition(OrdersBusinessService.class)
+				.setScope(WebApplicationContext.SCOPE_SESSION)
+				.addPropertyReference("service", "sessionDataService")
+				.getBeanDefinition(), "sessionOrdersService", true);
+
+		// the singleton wiring: one JDBC template, data service and business service for all requests
+		register(BeanDefinitionBuilder.genericBeanDefinition(NamedParameterJdbcTemplate.class)
+				.addConstructorArgReference("dataSource")
+				.getBeanDefinition(), "namedParameterJdbcTemplate", false);
+		register(BeanDefinitionBuilder.genericBeanDefinition(OrdersDataService.class)
+				.addPropertyReference("namedParameterJdbcTemplate", "namedParameterJdbcTemplate")
+				.getBeanDefinition(), "ordersDataService", false);
+		register(BeanDefinitionBuilder.genericBeanDefinition(OrdersBusinessService.class)
+				.addPropertyReference("service", "ordersDataService")
+				.getBeanDefinition(), "ordersService", false);
+		context.refresh();
+
+		sessionService = context.getBean("sessionOrdersService", OrdersBusinessInterface.class);
+		singletonService = context.getBean("ordersService", OrdersBusinessInterface.class);
+		sessionRequest = newSession();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		RequestContextHolder.resetRequestAttributes();
+		context.close();
+		database.close();
+	}
+
+	/**
+	 * A call through the session-scoped proxy in a session whose beans already exist
+	 */
+	@Benchmark
+	public boolean sessionScopedCall()
+	{
+		RequestContextHolder.setRequestAttributes(sessionRequest);
+		return sessionService.isWriteBehind();
+	}
+
+	/**
+	 * The first call of a new session, which builds the session's beans
+	 */
+	@Benchmark
+	public boolean sessionScopedNewSession()
+	{
+		RequestContextHolder.setRequestAttributes(newSession());
+		return sessionService.isWriteBehind();
+	}
+
+	/**
+	 * A call to the singleton, the same in every session
+	 */
+	@Benchmark
+	public boolean singletonCall()
+	{
+		RequestContextHolder.setRequestAttributes(sessionRequest);
+		return singletonService.isWriteBehind();
+	}
+
+	/**
+	 * The first call of a new session to the singleton, which builds nothing but the request and session
+	 */
+	@Benchmark
+	public boolean singletonNewSession()
+	{
+		RequestContextHolder.setRequestAttributes(newSession());
+		return singletonService.isWriteBehind();
+	}
+
+	/**
+	 * This method registers a bean, behind an interface proxy of its scope if it is scoped
+	 * @param definition the bean definition
+	 * @param name the bean name
+	 * @param scoped true to register a scoped proxy under the name
+	 */
+	private void register(AbstractBeanDefinition definition, String name, boolean scoped)
+	{
+		BeanDefinitionHolder holder = new BeanDefinitionHolder(definition, name);
+		if (scoped)
+		{
+			holder = ScopedProxyUtils.createScopedProxy(holder, context, false);
+		}
+		BeanDefinitionReaderUtils.registerBeanDefinition(holder, context);
+	}
+
+	/**
+	 * This method starts a request in a new session
+	 * @return the attributes of the request
+	 */
+	private static ServletRequestAttributes newSession()
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(new MockHttpSession());
+		return new ServletRequestAttributes(request);
+	}
+}
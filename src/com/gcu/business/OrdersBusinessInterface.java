@@ -1,8 +1,14 @@
 package com.gcu.business;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.gcu.data.WriteOutcome;
 import com.gcu.model.Order;
+import com.gcu.model.OrderFilter;
+import com.gcu.model.ProductSummary;
+import com.gcu.model.TableVersion;
+import com.gcu.util.exception.ConcurrentUpdateException;
 
 /**
  * This interface defines what methods are needed to enforce business logic and rules for orders
@@ -18,6 +24,55 @@ public interface OrdersBusinessInterface
 	 */
 	public List<Order> retrieveAll();
 	
+	/**
+	 * This method fetches one order by ID
+	 * @param id the unique ID of the order
+	 * @return the order, or null if there is no order with that ID
+	 */
+	public Order retrieveById(int id);
+	
+	/**
+	 * This method fetches one order by order number
+	 * @param orderNo the unique order number
+	 * @return the order, or null if there is no order with that number
+	 */
+	public Order retrieveByOrderNo(String orderNo);
+	
+	/**
+	 * This method fetches one page of orders
+	 * @param afterId the ID of the last order on the previous page (0 for the first page)
+	 * @param pageSize the maximum number of orders to return
+	 * @return a list of orders ordered by ID
+	 */
+	public List<Order> retrievePage(int afterId, int pageSize);
+	
+	/**
+	 * This method fetches the orders that match a filter
+	 * @param filter the criteria the orders must match
+	 * @param sort the field to sort by
+	 * @param descending true to sort from the largest value down
+	 * @param limit the maximum number of orders to return
+	 * @return a sorted list of matching orders
+	 */
+	public List<Order> retrieveMatching(OrderFilter filter, Order.Sort sort, boolean descending, int limit);
+	
+	/**
+	 * This method totals the orders that match a filter for each product
+	 * @param filter the criteria the orders must match
+	 * @param sort the field to sort by
+	 * @param descending true to sort from the largest value down
+	 * @param limit the maximum number of products to return
+	 * @return a sorted summary of each product
+	 */
+	public List<ProductSummary> summarizeByProduct(OrderFilter filter, ProductSummary.Sort sort, boolean descending, int limit);
+	
+	/**
+	 * This method streams all orders to a consumer without holding them in memory
+	 * @param consumer the consumer that receives each order
+	 * @return the number of orders streamed
+	 */
+	public int streamAll(Consumer<Order> consumer);
+	
 	/**
 	 * This method places an order
 	 * @param order the order being placed
@@ -26,16 +81,51 @@ public interface OrdersBusinessInterface
 	public boolean place(Order order);
 	
 	/**
-	 * This method edits an order
-	 * @param order the changed order
-	 * @return boolean indicating whether the order was edited successfully
+	 * This method places many orders at once
+	 * @param orders the orders being placed
+	 * @return a flag for each order indicating whether it was placed successfully
+	 */
+	public boolean[] placeAll(List<Order> orders);
+	
+	/**
+	 * This method tells whether placed orders are acknowledged once journaled, before they reach the database
+	 * @return true if orders are written behind
+	 */
+	public boolean isWriteBehind();
+	
+	/**
+	 * This method edits an order if it is still at the version the client read
+	 * @param order the changed order, with the version it was read at
+	 * @return boolean indicating whether the order was edited successfully, false if it does not exist
+	 * @throws ConcurrentUpdateException if the order changed since it was read
 	 */
 	public boolean edit(Order order);
 	
+	/**
+	 * This method edits many orders at once, each only if it is still at the version the client read
+	 * @param orders the orders being edited, with the versions they were read at
+	 * @return the outcome for each order
+	 */
+	public WriteOutcome[] editAll(List<Order> orders);
+	
 	/**
 	 * This method cancels an order
 	 * @param order the order being cancelled
 	 * @return boolean indicating whether the order was edited successfully
 	 */
 	public boolean cancel(Order order);
+	
+	/**
+	 * This method cancels many orders at once
+	 * @param orders the orders being cancelled
+	 * @return the outcome for each order
+	 */
+	public WriteOutcome[] cancelAll(List<Order> orders);
+	
+	/**
+	 * This method returns the version of the orders, which increases whenever they change, and the time of that change.
+	 * A response read after getting the version is at least as new as the version
+	 * @return the current version
+	 */
+	public TableVersion retrieveVersion();
 }
@@ -1,14 +1,31 @@
 package com.gcu.business;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.gcu.data.DataAccessInterface;
+import com.gcu.data.OrdersDataInterface;
+import com.gcu.data.WriteOutcome;
 import com.gcu.model.Order;
+import com.gcu.model.OrderEvent;
+import com.gcu.model.OrderFilter;
+import com.gcu.model.ProductSummary;
+import com.gcu.model.TableVersion;
 import com.gcu.service.OrderService;
+import com.gcu.util.cache.CacheInterface;
+import com.gcu.util.cache.SharedList;
+import com.gcu.util.cache.SingleFlight;
+import com.gcu.util.events.OrderEventBus;
+import com.gcu.util.exception.ConcurrentUpdateException;
+import com.gcu.util.ingest.OrderIngestionQueue;
+import com.gcu.util.routing.ReadRoutingContext;
 
 /**
  * The OrdersBusinessService oversees application business rules and logic for orders
@@ -18,44 +35,404 @@ import com.gcu.service.OrderService;
 public class OrdersBusinessService implements OrdersBusinessInterface {
 	
 	// The data service that handles database CRUD operations for orders
-	DataAccessInterface<Order> service;
+	OrdersDataInterface service;
+	
+	// The optional cache placed in front of the data service
+	CacheInterface<Order> cache;
+	
+	// The optional single-flight layer that shares one query among concurrent identical reads
+	SingleFlight flights;
+	
+	// The optional queue that writes placed orders behind
+	OrderIngestionQueue ingestion;
+	
+	// The optional change feed that saved changes are published to
+	OrderEventBus events;
 	
 	/**
 	 * This method handles setter injection of the data service
 	 * @param service
 	 */
 	@Autowired
-	public void setService(DataAccessInterface<Order> service)
+	public void setService(OrdersDataInterface service)
 	{
 		this.service = service;
 	}
+	
+	/**
+	 * This method handles setter injection of the cache
+	 * @param cache the cache placed in front of the data service
+	 */
+	@Autowired(required = false)
+	public void setCache(CacheInterface<Order> cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * This method handles setter injection of the single-flight layer
+	 * @param flights the layer that coalesces concurrent reads of all orders
+	 */
+	@Autowired(required = false)
+	public void setFlights(SingleFlight flights)
+	{
+		this.flights = flights;
+	}
+	
+	/**
+	 * This method handles setter injection of the write-behind ingestion queue
+	 * @param ingestion the queue placed orders are journaled to when it is enabled
+	 */
+	@Autowired(required = false)
+	public void setIngestion(OrderIngestionQueue ingestion)
+	{
+		this.ingestion = ingestion;
+	}
+	
+	/**
+	 * This method handles setter injection of the change feed
+	 * @param events the bus that placed, edited and cancelled orders are published to
+	 */
+	@Autowired(required = false)
+	public void setEvents(OrderEventBus events)
+	{
+		this.events = events;
+	}
 
 	
 	@Override
 	public List<Order> retrieveAll() 
 	{	
-		// pass control to data service to find all orders
-		return service.findAll();
+		// IF reads are neither cached nor coalesced, the list goes to one caller only, so pass control to data service to find all orders
+		if (flights == null && cache == null)
+		{
+			return service.findAll();
+		}
+		
+		// read the version before the orders, from the database the orders are read from, so the orders are at least
+		// as new as the version they are shared and cached at
+		long version = service.findVersion().getVersion();
+		
+		// IF there is no cache, pass control to data service to find all orders
+		boolean primary = ReadRoutingContext.readsPrimary();
+		if (cache == null)
+		{
+			return loadAll(version, primary);
+		}
+		
+		// serve the cached list when it is at least as new as the version. A session that must see its own writes read
+		// the version from the primary, and a list loaded from a replica without those writes is cached at an older one
+		List<Order> orders = cache.getAll(version);
+		if (orders == null)
+		{
+			// pass control to data service to find all orders and cache them
+			orders = loadAll(version, primary);
+			cache.putAll(orders, version);
+		}
+		return orders;
+	}
+	
+	/**
+	 * This method finds all orders, sharing one query among the callers that ask at the same time. A caller only
+	 * joins a query of the same version of the orders and the same database, so it never gets orders from before
+	 * a write it must see
+	 * @param version the version of the orders read before the query
+	 * @param primary true if the caller reads from the primary
+	 * @return a list of all orders, shared by every caller of the query
+	 */
+	private List<Order> loadAll(long version, boolean primary)
+	{
+		// IF reads are not coalesced, the list is still shared through the cache
+		if (flights == null)
+		{
+			return new SharedList<Order>(service.findAll());
+		}
+		
+		// pass control to data service once for every caller asking now
+		return flights.execute(Arrays.asList("findAll", version, primary), () -> new SharedList<Order>(service.findAll()));
+	}
+	
+	@Override
+	public Order retrieveById(int id) 
+	{
+		// IF there is no cache, pass control to data service to find the order
+		if (cache == null)
+		{
+			return service.findById(id);
+		}
+		
+		// serve the cached order when it is at least as new as the version, read before the order from the same database
+		long version = service.findVersion().getVersion();
+		Order order = cache.get(id, version);
+		if (order == null)
+		{
+			// pass control to data service to find the order and cache it if it exists
+			order = service.findById(id);
+			if (order != null)
+			{
+				cache.put(id, order, version);
+			}
+		}
+		return order;
+	}
+	
+	@Override
+	public Order retrieveByOrderNo(String orderNo) 
+	{
+		// pass control to data service to find the order
+		return service.findByOrderNo(orderNo);
+	}
+	
+	@Override
+	public List<Order> retrievePage(int afterId, int pageSize) 
+	{
+		// pass control to data service to find the requested page of orders
+		return service.findPage(afterId, pageSize);
+	}
+	
+	@Override
+	public List<Order> retrieveMatching(OrderFilter filter, Order.Sort sort, boolean descending, int limit) 
+	{
+		// pass control to data service to filter and sort the orders in the database
+		return service.findMatching(filter, sort, descending, limit);
+	}
+	
+	@Override
+	public List<ProductSummary> summarizeByProduct(OrderFilter filter, ProductSummary.Sort sort, boolean descending, int limit) 
+	{
+		// pass control to data service to total the orders in the database
+		return service.summarizeByProduct(filter, sort, descending, limit);
+	}
+	
+	@Override
+	public int streamAll(Consumer<Order> consumer) 
+	{
+		// pass control to data service to stream all orders
+		return service.streamAll(consumer);
 	}
 
 	@Override
 	public boolean place(Order order) 
 	{			
+		// IF orders are written behind, accept the order once it is journaled. The queue publishes it once it is stored
+		if (isWriteBehind())
+		{
+			journal(Collections.singletonList(order));
+			return true;
+		}
+		
 		// pass control to data service to create the new order
-		return service.create(order);
+		boolean placed = service.create(order);
+		
+		// the cached list no longer includes every order
+		invalidateAll();
+		if (placed)
+		{
+			publish(OrderEvent.Type.PLACED, order);
+		}
+		return placed;
+	}
+	
+	@Override
+	public boolean[] placeAll(List<Order> orders) 
+	{
+		// IF orders are written behind, accept the orders once they are journaled. The queue publishes them once they are stored
+		if (isWriteBehind())
+		{
+			journal(orders);
+			boolean[] placed = new boolean[orders.size()];
+			Arrays.fill(placed, true);
+			return placed;
+		}
+		
+		// pass control to data service to create the new orders in batches
+		boolean[] placed = service.createAll(orders);
+		
+		// the cached list no longer includes every order
+		invalidateAll();
+		publish(OrderEvent.Type.PLACED, orders, placed);
+		return placed;
+	}
+	
+	@Override
+	public boolean isWriteBehind() 
+	{
+		return ingestion != null && ingestion.isEnabled();
+	}
+	
+	/**
+	 * This method hands orders to the ingestion queue, which writes them to the database and invalidates the cache
+	 * @param orders the orders being placed
+	 */
+	private void journal(List<Order> orders)
+	{
+		// use try/catch to handle journal failures
+		try 
+		{
+			ingestion.submit(orders);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	@Override
 	public boolean edit(Order order) 
 	{
 		// pass control to data service to update the order
-		return service.update(order);
+		boolean edited;
+		try
+		{
+			edited = service.update(order);
+		}
+		
+		// a client retrying after a conflict must read the current version, not a cached one
+		catch (ConcurrentUpdateException e)
+		{
+			invalidate(order.getId());
+			throw e;
+		}
+		
+		// the cached copies of the order are stale
+		invalidate(order.getId());
+		if (edited)
+		{
+			publish(OrderEvent.Type.EDITED, order);
+		}
+		return edited;
+	}
+
+	@Override
+	public WriteOutcome[] editAll(List<Order> orders) 
+	{
+		// pass control to data service to update the orders in batches
+		WriteOutcome[] edited = service.updateAll(orders);
+		
+		// the cached copies of the orders are stale, including those that conflicted
+		invalidate(orders);
+		publish(OrderEvent.Type.EDITED, orders, edited);
+		return edited;
 	}
 
 	@Override
 	public boolean cancel(Order order) 
 	{
 		// pass control to data service to delete the order
-		return service.delete(order);
+		boolean cancelled = service.delete(order);
+		
+		// the cached copies of the order are stale
+		invalidate(order.getId());
+		if (cancelled)
+		{
+			publish(OrderEvent.Type.CANCELLED, order);
+		}
+		return cancelled;
+	}
+	
+	@Override
+	public WriteOutcome[] cancelAll(List<Order> orders) 
+	{
+		// pass control to data service to delete the orders in chunks
+		WriteOutcome[] cancelled = service.deleteAll(orders);
+		
+		// the cached copies of the orders are stale
+		invalidate(orders);
+		publish(OrderEvent.Type.CANCELLED, orders, cancelled);
+		return cancelled;
+	}
+	
+	@Override
+	public TableVersion retrieveVersion() 
+	{
+		// pass control to data service to find the version stored beside the orders. Cached copies are kept at the
+		// version they were loaded at and never served for a later one, so the cache does not change the version
+		return service.findVersion();
+	}
+	
+	/**
+	 * This method removes a changed order and the list of all orders from the cache
+	 * @param id the unique ID of the changed order
+	 */
+	private void invalidate(int id)
+	{
+		if (cache != null)
+		{
+			cache.invalidate(id);
+		}
+	}
+	
+	/**
+	 * This method publishes a saved change to the change feed, after the cache has dropped the stale copies so a
+	 * subscriber that reads the order back sees the change
+	 * @param type the kind of change
+	 * @param order the changed order
+	 */
+	private void publish(OrderEvent.Type type, Order order)
+	{
+		if (events != null)
+		{
+			events.publish(type, order);
+		}
+	}
+	
+	/**
+	 * This method publishes the saved changes of a bulk request to the change feed
+	 * @param type the kind of change
+	 * @param orders the orders of the request
+	 * @param saved a flag for each order telling whether it was saved
+	 */
+	private void publish(OrderEvent.Type type, List<Order> orders, boolean[] saved)
+	{
+		for (int i = 0; events != null && i < saved.length; i++)
+		{
+			if (saved[i])
+			{
+				events.publish(type, orders.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * This method publishes the changes of a bulk update or cancellation to the change feed
+	 * @param type the kind of change
+	 * @param orders the orders of the request
+	 * @param outcomes the outcome for each order
+	 */
+	private void publish(OrderEvent.Type type, List<Order> orders, WriteOutcome[] outcomes)
+	{
+		for (int i = 0; events != null && i < outcomes.length; i++)
+		{
+			if (outcomes[i] == WriteOutcome.DONE)
+			{
+				events.publish(type, orders.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * This method removes changed orders and the list of all orders from the cache
+	 * @param orders the changed orders
+	 */
+	private void invalidate(List<Order> orders)
+	{
+		if (cache != null)
+		{
+			for (Order order : orders)
+			{
+				cache.invalidate(order.getId());
+			}
+		}
+	}
+	
+	/**
+	 * This method removes the list of all orders from the cache after orders were added
+	 */
+	private void invalidateAll()
+	{
+		if (cache != null)
+		{
+			cache.invalidateAll();
+		}
 	}
 }
@@ -0,0 +1,90 @@
+package com.gcu.config;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * This class creates the orders schema in an embedded database and seeds it with generated orders
+ * @author Josh Van de Walle
+ *
+ */
+public class EmbeddedDatabaseInitializer implements InitializingBean 
+{
+	// Logger used to report the seeding
+	private static final Logger logger = LoggerFactory.getLogger(EmbeddedDatabaseInitializer.class);
+	
+	// number of rows inserted per batch
+	private static final int BATCH_SIZE = 1000;
+	
+	// the version every embedded database of this run starts at, so a stand-in replica has the version of a replica
+	// that has received none of the primary's writes
+	private static final long STARTED = System.currentTimeMillis();
+	
+	// SQL to insert a seed order
+	private static final String INSERT = "INSERT INTO orders (ORDER_NO, PRODUCT_NAME, PRICE_CENTS, QUANTITY) VALUES (?, ?, ?, ?)";
+	
+	private DataSource dataSource;
+	private Resource schema;
+	private int rows;
+
+	@Override
+	public void afterPropertiesSet() 
+	{
+		// create the schema
+		new ResourceDatabasePopulator(schema).execute(dataSource);
+		
+		// seed the orders one batch at a time
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		long start = System.nanoTime();
+		for (int first = 0; first < rows; first += BATCH_SIZE)
+		{
+			final int offset = first;
+			final int count = Math.min(BATCH_SIZE, rows - first);
+			jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() 
+			{
+				@Override
+				public void setValues(PreparedStatement ps, int i) throws SQLException 
+				{
+					int n = offset + i;
+					ps.setString(1, "ORD-" + n);
+					ps.setString(2, "Product " + (n % 50));
+					ps.setLong(3, 125 + (n % 100) * 100);
+					ps.setInt(4, 1 + (n % 10));
+				}
+				
+				@Override
+				public int getBatchSize() 
+				{
+					return count;
+				}
+			});
+		}
+		logger.info("Seeded {} orders in {} ms", rows, (System.nanoTime() - start) / 1000000);
+		
+		// the database is new on every start, so its version starts from the start time: a validator a client kept
+		// from an earlier run, over other orders, is never current
+		jdbcTemplate.update("UPDATE orders_version SET VERSION = ?, LAST_MODIFIED = ? WHERE ID = 1", STARTED, STARTED);
+	}
+
+	public void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public void setSchema(Resource schema) {
+		this.schema = schema;
+	}
+
+	public void setRows(int rows) {
+		this.rows = rows;
+	}
+}
@@ -0,0 +1,210 @@
+package com.gcu.config;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+
+import com.gcu.util.metrics.MeteredDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * This class builds the application connection pool from external properties. The pool implementation is
+ * selected with the poolType property ("dbcp" for commons-dbcp2 or "hikari" for HikariCP) and is always
+ * wrapped in a MeteredDataSource so its gauges can be monitored
+ * @author Josh Van de Walle
+ *
+ */
+public class PooledDataSourceFactoryBean implements FactoryBean<MeteredDataSource>, DisposableBean 
+{
+	// connection settings
+	private String poolType = "dbcp";
+	private String driverClassName;
+	private String url;
+	private String username;
+	private String password;
+	
+	// pool sizing
+	private int maxTotal = 20;
+	private int minIdle = 5;
+	private long maxWaitMillis = 2000;
+	
+	// validation
+	private String validationQuery;
+	private int validationTimeoutSeconds = 2;
+	private boolean testWhileIdle = true;
+	
+	// idle eviction
+	private long timeBetweenEvictionRunsMillis = 30000;
+	private long minEvictableIdleTimeMillis = 300000;
+	
+	// prepared statement caching
+	private boolean poolPreparedStatements = true;
+	private int maxOpenPreparedStatements = 100;
+	
+	// the pool built by this factory
+	private DataSource pool;
+	private MeteredDataSource dataSource;
+
+	@Override
+	public synchronized MeteredDataSource getObject() 
+	{
+		// build the pool the first time it is requested
+		if (dataSource == null)
+		{
+			pool = "hikari".equalsIgnoreCase(poolType) ? createHikari() : createDbcp();
+			dataSource = new MeteredDataSource(pool);
+		}
+		return dataSource;
+	}
+
+	@Override
+	public Class<?> getObjectType() 
+	{
+		return MeteredDataSource.class;
+	}
+
+	@Override
+	public boolean isSingleton() 
+	{
+		return true;
+	}
+
+	@Override
+	public synchronized void destroy() throws Exception 
+	{
+		// close whichever pool was built
+		if (pool instanceof BasicDataSource)
+		{
+			((BasicDataSource) pool).close();
+		}
+		else if (pool instanceof HikariDataSource)
+		{
+			((HikariDataSource) pool).close();
+		}
+	}
+	
+	/**
+	 * This method builds a commons-dbcp2 pool
+	 * @return the configured pool
+	 */
+	private DataSource createDbcp()
+	{
+		BasicDataSource dbcp = new BasicDataSource();
+		dbcp.setDriverClassName(driverClassName);
+		dbcp.setUrl(url);
+		dbcp.setUsername(username);
+		dbcp.setPassword(password);
+		dbcp.setMaxTotal(maxTotal);
+		dbcp.setMaxIdle(maxTotal);
+		dbcp.setMinIdle(minIdle);
+		dbcp.setMaxWaitMillis(maxWaitMillis);
+		if (validationQuery != null && !validationQuery.isEmpty())
+		{
+			dbcp.setValidationQuery(validationQuery);
+		}
+		dbcp.setValidationQueryTimeout(validationTimeoutSeconds);
+		dbcp.setTestOnBorrow(false);
+		dbcp.setTestWhileIdle(testWhileIdle);
+		dbcp.setTimeBetweenEvictionRunsMillis(timeBetweenEvictionRunsMillis);
+		dbcp.setMinEvictableIdleTimeMillis(minEvictableIdleTimeMillis);
+		dbcp.setPoolPreparedStatements(poolPreparedStatements);
+		dbcp.setMaxOpenPreparedStatements(maxOpenPreparedStatements);
+		return dbcp;
+	}
+	
+	/**
+	 * This method builds a HikariCP pool
+	 * @return the configured pool
+	 */
+	private DataSource createHikari()
+	{
+		HikariDataSource hikari = new HikariDataSource();
+		hikari.setPoolName("orders");
+		hikari.setDriverClassName(driverClassName);
+		hikari.setJdbcUrl(url);
+		hikari.setUsername(username);
+		hikari.setPassword(password);
+		hikari.setMaximumPoolSize(maxTotal);
+		hikari.setMinimumIdle(minIdle);
+		hikari.setConnectionTimeout(Math.max(250, maxWaitMillis));
+		hikari.setValidationTimeout(Math.max(250, validationTimeoutSeconds * 1000L));
+		hikari.setIdleTimeout(minEvictableIdleTimeMillis);
+		
+		// Hikari relies on Connection.isValid unless the driver needs a query
+		if (validationQuery != null && !validationQuery.isEmpty())
+		{
+			hikari.setConnectionTestQuery(validationQuery);
+		}
+		
+		// Hikari leaves statement caching to the driver
+		if (poolPreparedStatements && url != null && url.startsWith("jdbc:mysql:"))
+		{
+			hikari.addDataSourceProperty("cachePrepStmts", "true");
+			hikari.addDataSourceProperty("prepStmtCacheSize", String.valueOf(maxOpenPreparedStatements));
+			hikari.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+		}
+		return hikari;
+	}
+
+	public void setPoolType(String poolType) {
+		this.poolType = poolType;
+	}
+
+	public void setDriverClassName(String driverClassName) {
+		this.driverClassName = driverClassName;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public void setPassword(String password) {
+		this.password = password;
+	}
+
+	public void setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+	}
+
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+	}
+
+	public void setTestWhileIdle(boolean testWhileIdle) {
+		this.testWhileIdle = testWhileIdle;
+	}
+
+	public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+		this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+	}
+
+	public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+		this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+	}
+
+	public void setPoolPreparedStatements(boolean poolPreparedStatements) {
+		this.poolPreparedStatements = poolPreparedStatements;
+	}
+
+	public void setMaxOpenPreparedStatements(int maxOpenPreparedStatements) {
+		this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+	}
+}
@@ -1,6 +1,9 @@
 package com.gcu.data;
 
 import java.util.List;
+import java.util.function.Consumer;
+
+import com.gcu.model.TableVersion;
 
 /**
  * This interface is used to define the methods of data services
@@ -16,6 +19,28 @@ public interface DataAccessInterface<T>
 	 */
 	public List<T> findAll();
 	
+	/**
+	 * This method finds a record by its unique ID
+	 * @param id the unique ID of the record
+	 * @return the record, or null if there is no record with that ID
+	 */
+	public T findById(int id);
+	
+	/**
+	 * This method finds one page of records using the record ID as a seek cursor
+	 * @param afterId the ID of the last record on the previous page (0 for the first page)
+	 * @param pageSize the maximum number of records to return
+	 * @return a list of at most pageSize records with an ID greater than afterId, ordered by ID
+	 */
+	public List<T> findPage(int afterId, int pageSize);
+	
+	/**
+	 * This method streams all records to a consumer as they are read from the database cursor
+	 * @param consumer the consumer that receives each record
+	 * @return the number of records streamed
+	 */
+	public int streamAll(Consumer<T> consumer);
+	
 	/**
 	 * This method creates a new record
 	 * @param t the record to be created
@@ -23,6 +48,13 @@ public interface DataAccessInterface<T>
 	 */
 	public boolean create(T t);
 	
+	/**
+	 * This method creates many records using batched statements
+	 * @param list the records to be created
+	 * @return a success flag for each record, in the order of the list
+	 */
+	public boolean[] createAll(List<T> list);
+	
 	/**
 	 * This method updates a record
 	 * @param t the record to be updated
@@ -30,12 +62,34 @@ public interface DataAccessInterface<T>
 	 */
 	public boolean update(T t);
 	
+	/**
+	 * This method updates many records using batched statements. Each record is only updated if it is still at
+	 * the version the client read
+	 * @param list the records to be updated
+	 * @return the outcome for each record, in the order of the list
+	 */
+	public WriteOutcome[] updateAll(List<T> list);
+	
 	/**
 	 * This method deletes a record
 	 * @param t the record to be deleted
 	 * @return boolean success flag
 	 */
 	public boolean delete(T t);
+	
+	/**
+	 * This method deletes many records by ID, a chunk of IDs per statement
+	 * @param list the records to be deleted
+	 * @return the outcome for each record, in the order of the list
+	 */
+	public WriteOutcome[] deleteAll(List<T> list);
+	
+	/**
+	 * This method finds the version of the table, stored in the database, which increases whenever a record is created,
+	 * updated or deleted through this service, and the time of that change
+	 * @return the current version
+	 */
+	public TableVersion findVersion();
 
 
 }
@@ -0,0 +1,42 @@
+package com.gcu.data;
+
+import java.util.List;
+
+import com.gcu.model.Order;
+import com.gcu.model.OrderFilter;
+import com.gcu.model.ProductSummary;
+
+/**
+ * This interface is used to define the order specific methods of the orders data service
+ * @author Josh Van de Walle
+ *
+ */
+public interface OrdersDataInterface extends DataAccessInterface<Order> 
+{
+	/**
+	 * This method finds an order by its order number
+	 * @param orderNo the unique order number
+	 * @return the order, or null if there is no order with that number
+	 */
+	public Order findByOrderNo(String orderNo);
+	
+	/**
+	 * This method finds the orders that match a filter, sorted in the database
+	 * @param filter the criteria the orders must match
+	 * @param sort the field to sort by
+	 * @param descending true to sort from the largest value down
+	 * @param limit the maximum number of orders to return
+	 * @return a list of matching orders
+	 */
+	public List<Order> findMatching(OrderFilter filter, Order.Sort sort, boolean descending, int limit);
+	
+	/**
+	 * This method totals the orders that match a filter for each product, grouped and sorted in the database
+	 * @param filter the criteria the orders must match
+	 * @param sort the field to sort by
+	 * @param descending true to sort from the largest value down
+	 * @param limit the maximum number of products to return
+	 * @return a summary of each product
+	 */
+	public List<ProductSummary> summarizeByProduct(OrderFilter filter, ProductSummary.Sort sort, boolean descending, int limit);
+}
@@ -1,35 +1,91 @@
 package com.gcu.data;
 
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
-import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 
 import com.gcu.model.Order;
+import com.gcu.model.OrderFilter;
+import com.gcu.model.ProductSummary;
+import com.gcu.model.TableVersion;
 import com.gcu.service.OrderService;
+import com.gcu.util.exception.ConcurrentUpdateException;
 import com.gcu.util.exception.DatabaseException;
+import com.gcu.util.money.Money;
 
 /**
  * The OrdersDataService handles database CRUD operations for orders
  * @author Josh Van de Walle
  *
  */
-public class OrdersDataService implements DataAccessInterface<Order> 
+public class OrdersDataService implements OrdersDataInterface 
 {
-	// DataSource used for database operations
-	private DataSource dataSource;
-	
-	// JDBC template used for database operations
+	// JDBC template used for database operations, shared by every caller
 	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+	
+	// number of rows the driver fetches per round trip while streaming
+	private int fetchSize = 500;
+	
+	// number of statements sent to the database per batch
+	private int batchSize = 500;
+	
+	// columns every order query selects, in the order ORDER_ROW_MAPPER reads them
+	private static final String ORDER_COLUMNS = "ID, ORDER_NO, PRODUCT_NAME, PRICE_CENTS, QUANTITY, VERSION";
+	
+	// maps a row of the orders table to an Order, reading the columns by position instead of looking up their names
+	private static final RowMapper<Order> ORDER_ROW_MAPPER = (rs, rowNum) -> new Order(rs.getInt(1), rs.getString(2),
+			rs.getString(3), rs.getLong(4), rs.getInt(5), rs.getInt(6));
+	
+	// maps a row of the product totals, selected as PRODUCT_NAME, ORDERS, QUANTITY, REVENUE, to a ProductSummary
+	private static final RowMapper<ProductSummary> SUMMARY_ROW_MAPPER = (rs, rowNum) -> new ProductSummary(rs.getString(1),
+			rs.getLong(2), rs.getLong(3), rs.getLong(4));
+	
+	// binds nothing, for a query without parameters that should still run as a pooled prepared statement
+	private static final PreparedStatementSetter NO_PARAMETERS = ps -> { };
+	
+	// the only expressions a query may sort by, so client input never reaches the SQL text
+	private static final Map<Order.Sort, String> ORDER_SORT_COLUMNS = new EnumMap<Order.Sort, String>(Order.Sort.class);
+	private static final Map<ProductSummary.Sort, String> SUMMARY_SORT_COLUMNS = new EnumMap<ProductSummary.Sort, String>(ProductSummary.Sort.class);
+	static
+	{
+		ORDER_SORT_COLUMNS.put(Order.Sort.ID, "ID");
+		ORDER_SORT_COLUMNS.put(Order.Sort.ORDER_NO, "ORDER_NO");
+		ORDER_SORT_COLUMNS.put(Order.Sort.PRODUCT_NAME, "PRODUCT_NAME");
+		ORDER_SORT_COLUMNS.put(Order.Sort.PRICE, "PRICE_CENTS");
+		ORDER_SORT_COLUMNS.put(Order.Sort.QUANTITY, "QUANTITY");
+		ORDER_SORT_COLUMNS.put(Order.Sort.TOTAL, "PRICE_CENTS * QUANTITY");
+		SUMMARY_SORT_COLUMNS.put(ProductSummary.Sort.PRODUCT_NAME, "PRODUCT_NAME");
+		SUMMARY_SORT_COLUMNS.put(ProductSummary.Sort.ORDERS, "ORDERS");
+		SUMMARY_SORT_COLUMNS.put(ProductSummary.Sort.QUANTITY, "QUANTITY");
+		SUMMARY_SORT_COLUMNS.put(ProductSummary.Sort.REVENUE, "REVENUE");
+	}
 
 	/**
 	 * This method is used to set the data source and create a jdbc template from it
@@ -37,34 +93,274 @@ public class OrdersDataService implements DataAccessInterface<Order>
 	 */
 	public void setDataSource(DataSource dataSource) 
 	{
-		// set data source and jdbc template
-		this.dataSource = dataSource;
+		// create a jdbc template over the data source
 		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
 	}
+	
+	/**
+	 * This method is used to share an existing jdbc template instead of creating one
+	 * @param namedParameterJdbcTemplate the jdbc template used for database operations
+	 */
+	public void setNamedParameterJdbcTemplate(NamedParameterJdbcTemplate namedParameterJdbcTemplate) 
+	{
+		this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+	}
+	
+	/**
+	 * This method is used to set how many rows the driver fetches per round trip while streaming
+	 * @param fetchSize the fetch size hint passed to the driver
+	 */
+	public void setFetchSize(int fetchSize) 
+	{
+		this.fetchSize = fetchSize;
+	}
+	
+	/**
+	 * This method is used to set how many statements are sent to the database per batch
+	 * @param batchSize the number of statements per batch
+	 */
+	public void setBatchSize(int batchSize) 
+	{
+		this.batchSize = batchSize;
+	}
 
 	@Override
 	public List<Order> findAll() 
 	{		
 		// SQL to get all orders
-		String sql = "SELECT * FROM orders";
+		String sql = "SELECT " + ORDER_COLUMNS + " FROM orders";
 		
-		// initialize list of orders to return
-		List<Order> result = new ArrayList<Order>();
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute query and map each row straight into the list of orders to return
+			return namedParameterJdbcTemplate.getJdbcOperations().query(sql, NO_PARAMETERS, ORDER_ROW_MAPPER);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
+	
+	@Override
+	public Order findById(int id) 
+	{
+		// SQL to get one order by primary key
+		String sql = "SELECT " + ORDER_COLUMNS + " FROM orders WHERE ID = ?";
 		
 		// use try/catch to handle database exceptions
 		try 
 		{
-			// execute query and capture result
-			SqlRowSet srs = namedParameterJdbcTemplate.queryForRowSet(sql, EmptySqlParameterSource.INSTANCE);
+			// execute query and return the order if there is one
+			List<Order> result = namedParameterJdbcTemplate.getJdbcOperations().query(sql, ps -> ps.setInt(1, id), ORDER_ROW_MAPPER);
+			return result.isEmpty() ? null : result.get(0);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
 	
-			// iterate over result set
-			while (srs.next()) 
+	@Override
+	public Order findByOrderNo(String orderNo) 
+	{
+		// SQL to get one order through the unique order number index
+		String sql = "SELECT " + ORDER_COLUMNS + " FROM orders WHERE ORDER_NO = ?";
+		
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute query and return the order if there is one
+			List<Order> result = namedParameterJdbcTemplate.getJdbcOperations().query(sql, ps -> ps.setString(1, orderNo), ORDER_ROW_MAPPER);
+			return result.isEmpty() ? null : result.get(0);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
+	
+	@Override
+	public List<Order> findPage(final int afterId, final int pageSize) 
+	{
+		// SQL to seek past the previous page using the primary key index
+		final String sql = "SELECT " + ORDER_COLUMNS + " FROM orders WHERE ID > ? ORDER BY ID";
+		
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute query with the row limit applied by the driver so the statement stays portable
+			return namedParameterJdbcTemplate.getJdbcOperations().query(con -> {
+				PreparedStatement ps = con.prepareStatement(sql);
+				ps.setInt(1, afterId);
+				ps.setMaxRows(pageSize);
+				ps.setFetchSize(pageSize);
+				return ps;
+			}, ORDER_ROW_MAPPER);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
+	
+	@Override
+	public List<Order> findMatching(OrderFilter filter, Order.Sort sort, boolean descending, int limit) 
+	{
+		// SQL to get the matching orders, with ID breaking ties so the order is stable
+		List<Object> args = new ArrayList<Object>();
+		String sql = "SELECT " + ORDER_COLUMNS + " FROM orders" + where(filter, args)
+				+ " ORDER BY " + ORDER_SORT_COLUMNS.get(sort) + (descending ? " DESC" : "") + ", ID";
+		
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute query with the row limit applied by the driver
+			return query(sql, args, limit, ORDER_ROW_MAPPER);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
+	
+	@Override
+	public List<ProductSummary> summarizeByProduct(OrderFilter filter, ProductSummary.Sort sort, boolean descending, int limit) 
+	{
+		// SQL to total the matching orders of each product, with the name breaking ties so the order is stable
+		List<Object> args = new ArrayList<Object>();
+		String sql = "SELECT PRODUCT_NAME, COUNT(*) AS ORDERS, SUM(QUANTITY) AS QUANTITY, SUM(PRICE_CENTS * QUANTITY) AS REVENUE FROM orders"
+				+ where(filter, args) + " GROUP BY PRODUCT_NAME"
+				+ " ORDER BY " + SUMMARY_SORT_COLUMNS.get(sort) + (descending ? " DESC" : "") + ", PRODUCT_NAME";
+		
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute query with the row limit applied by the driver
+			return query(sql, args, limit, SUMMARY_ROW_MAPPER);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
+	
+	/**
+	 * This method builds the WHERE clause for a filter, binding each criterion as a parameter
+	 * @param filter the criteria, may be null
+	 * @param args the list the parameter values are added to, in placeholder order
+	 * @return the WHERE clause, or an empty string if nothing is filtered
+	 */
+	private static String where(OrderFilter filter, List<Object> args)
+	{
+		StringBuilder where = new StringBuilder();
+		if (filter != null)
+		{
+			if (filter.getProductName() != null)
+			{
+				where.append(" AND PRODUCT_NAME = ?");
+				args.add(filter.getProductName());
+			}
+			if (filter.getMinPrice() != null)
+			{
+				where.append(" AND PRICE_CENTS >= ?");
+				args.add(Money.toCents(filter.getMinPrice()));
+			}
+			if (filter.getMaxPrice() != null)
+			{
+				where.append(" AND PRICE_CENTS <= ?");
+				args.add(Money.toCents(filter.getMaxPrice()));
+			}
+			if (filter.getMinQuantity() != null)
+			{
+				where.append(" AND QUANTITY >= ?");
+				args.add(filter.getMinQuantity());
+			}
+			if (filter.getMaxQuantity() != null)
+			{
+				where.append(" AND QUANTITY <= ?");
+				args.add(filter.getMaxQuantity());
+			}
+		}
+		return where.length() == 0 ? "" : " WHERE" + where.substring(4);
+	}
+	
+	/**
+	 * This method runs a query with positional parameters, reading at most a number of rows
+	 * @param sql the SQL with a ? placeholder for each parameter
+	 * @param args the parameter values in placeholder order
+	 * @param limit the maximum number of rows to read
+	 * @param rowMapper maps each row to a result
+	 * @return a list of results
+	 */
+	private <T> List<T> query(final String sql, final List<Object> args, final int limit, RowMapper<T> rowMapper)
+	{
+		// row limit applied by the driver so the statement stays portable
+		return namedParameterJdbcTemplate.getJdbcOperations().query(con -> {
+			PreparedStatement ps = con.prepareStatement(sql);
+			for (int i = 0; i < args.size(); i++)
 			{
-				// add orders to list
-				result.add(new Order(srs.getString("ORDER_NO"), srs.getString("PRODUCT_NAME"),
-						srs.getFloat("PRICE"), srs.getInt("QUANTITY")));
+				ps.setObject(i + 1, args.get(i));
 			}
+			ps.setMaxRows(limit);
+			ps.setFetchSize(Math.min(limit, fetchSize));
+			return ps;
+		}, rowMapper);
+	}
+	
+	@Override
+	public int streamAll(final Consumer<Order> consumer) 
+	{
+		// SQL to get all orders in primary key order
+		final String sql = "SELECT " + ORDER_COLUMNS + " FROM orders ORDER BY ID";
 		
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// open a forward-only cursor that fetches rows in chunks instead of buffering the whole table
+			return namedParameterJdbcTemplate.getJdbcOperations().query(con -> {
+				PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				ps.setFetchSize(fetchSize);
+				return ps;
+			}, (ResultSetExtractor<Integer>) rs -> {
+				// hand each row to the consumer as soon as it is read
+				int count = 0;
+				while (rs.next())
+				{
+					consumer.accept(ORDER_ROW_MAPPER.mapRow(rs, count++));
+				}
+				return count;
+			});
 		}
 		
 		// handle database exceptions
@@ -75,9 +371,6 @@ public class OrdersDataService implements DataAccessInterface<Order>
 			// wrap exception in custom database exception for encapsulation
 			throw new DatabaseException(e);
 		}
-		
-		// return list
-		return result;
 	}
 	
 	
@@ -85,17 +378,28 @@ public class OrdersDataService implements DataAccessInterface<Order>
 	public boolean create(Order order) 
 	{	
 		// SQL to insert an order
-		String sql = "INSERT INTO orders (ORDER_NO, PRODUCT_NAME, PRICE, QUANTITY) VALUES (:orderNo, :productName, :price, :quantity)";
+		String sql = "INSERT INTO orders (ORDER_NO, PRODUCT_NAME, PRICE_CENTS, QUANTITY) VALUES (?, ?, ?, ?)";
 		
 		// use try/catch to handle database exceptions
 		try 
 		{
-			// make the order passed in the parameter source for the query
-			BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(order);
-	
-			// execute statement and IF successful
-			if (namedParameterJdbcTemplate.update(sql, params) != 0)
-			{	
+			// execute statement with the order bound straight from its getters and IF successful
+			KeyHolder keys = new GeneratedKeyHolder();
+			if (namedParameterJdbcTemplate.getJdbcOperations().update(connection -> {
+				PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+				bindInsert(ps, order);
+				return ps;
+			}, keys) != 0)
+			{
+				// record the change for conditional reads
+				changed();
+				
+				// the order now carries the ID it was stored with
+				if (keys.getKey() != null)
+				{
+					order.setId(keys.getKey().intValue());
+				}
+					
 				// inform the business layer the operation was successful
 				return true;
 			}
@@ -116,26 +420,90 @@ public class OrdersDataService implements DataAccessInterface<Order>
 
 	}
 
+	@Override
+	public boolean[] createAll(List<Order> orders) 
+	{
+		// SQL to insert an order
+		String sql = "INSERT INTO orders (ORDER_NO, PRODUCT_NAME, PRICE_CENTS, QUANTITY) VALUES (?, ?, ?, ?)";
+		
+		// initialize the success flags to return
+		boolean[] result = new boolean[orders.size()];
+		boolean changed = false;
+		
+		// send the orders to the database one chunk at a time
+		for (int start = 0; start < orders.size(); start += batchSize)
+		{
+			int end = Math.min(start + batchSize, orders.size());
+			
+			// the IDs the driver generated for the chunk, in statement order
+			List<Integer> keys = new ArrayList<Integer>(end - start);
+			
+			// use try/catch to handle database exceptions
+			try 
+			{
+				// execute the batch and record which statements succeeded
+				recordInserts(batchInsert(sql, orders, start, end, keys), result, start);
+			}
+			
+			// handle database exceptions
+			catch (DataAccessException e)
+			{
+				// print stack trace and flag only the orders the driver did not report as inserted, so the rest can still be created
+				e.printStackTrace();
+				recordInserts(failedBatchCounts(e), result, start);
+			}
+			
+			// the created orders carry the IDs they were stored with
+			assignIds(orders, start, end, result, keys);
+			
+			// a chunk may have added orders even where it failed
+			for (int i = start; i < end; i++)
+			{
+				changed |= result[i];
+			}
+		}
+		
+		// record the change for conditional reads only if an order was added
+		if (changed)
+		{
+			changed();
+		}
+		
+		// return success flags
+		return result;
+	}
+
 	@Override
 	public boolean update(Order order) 
 	{
-		// SQL to update an order
-		String sql = "UPDATE orders SET ORDER_NO = :orderNo, PRODUCT_NAME = :productName, PRICE = :price, QUANTITY = :quantity WHERE ID = :id";
+		// SQL to update an order only if it has not changed since the client read it
+		String sql = "UPDATE orders SET ORDER_NO = ?, PRODUCT_NAME = ?, PRICE_CENTS = ?, QUANTITY = ?, "
+				+ "VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?";
 
 		// use try/catch to handle database exceptions
 		try
 		{
-			// make the order passed in the parameter source for the query
-			BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(order);
-	
-			// execute statement and IF successful
-			if (namedParameterJdbcTemplate.update(sql, params) != 0)
-			{	
+			// execute statement with the order bound straight from its getters and IF successful
+			if (namedParameterJdbcTemplate.getJdbcOperations().update(sql, ps -> bindUpdate(ps, order)) != 0)
+			{
+				// record the change for conditional reads
+				changed();
+				
+				// the order now carries the version it was saved with
+				order.setVersion(order.getVersion() + 1);
+					
 				// inform the business layer the operation was successful
 				return true;
 			}
 			
-			// inform the business layer the operation failed
+			// IF the order still exists it was changed by someone else since the client read it
+			if (!namedParameterJdbcTemplate.getJdbcOperations().query("SELECT ID FROM orders WHERE ID = ?", ps -> ps.setInt(1, order.getId()),
+					(rs, rowNum) -> rs.getInt(1)).isEmpty())
+			{
+				throw new ConcurrentUpdateException("Order " + order.getId() + " was changed since version " + order.getVersion());
+			}
+			
+			// inform the business layer the order was not found
 			return false;
 		}
 		
@@ -151,21 +519,113 @@ public class OrdersDataService implements DataAccessInterface<Order>
 
 	}
 
+	@Override
+	public WriteOutcome[] updateAll(List<Order> orders) 
+	{
+		// SQL to update an order only if it has not changed since the client read it
+		String sql = "UPDATE orders SET ORDER_NO = ?, PRODUCT_NAME = ?, PRICE_CENTS = ?, QUANTITY = ?, "
+				+ "VERSION = VERSION + 1 WHERE ID = ? AND VERSION = ?";
+		
+		// initialize the outcomes to return
+		WriteOutcome[] result = new WriteOutcome[orders.size()];
+		boolean changed = false;
+		
+		// send the orders to the database one chunk at a time
+		for (int start = 0; start < orders.size(); start += batchSize)
+		{
+			int end = Math.min(start + batchSize, orders.size());
+			
+			// use try/catch to handle database exceptions
+			try 
+			{
+				// execute the batch, collecting the orders whose count does not show an update
+				int[] counts = batchUpdate(sql, orders, start, end, OrdersDataService::bindUpdate);
+				List<Integer> unsure = new ArrayList<Integer>();
+				for (int i = 0; i < counts.length; i++)
+				{
+					if (counts[i] > 0)
+					{
+						result[start + i] = WriteOutcome.DONE;
+					}
+					else 
+					{
+						unsure.add(start + i);
+					}
+				}
+				
+				// IF some orders were not updated, or the driver did not report counts, read their current versions
+				if (!unsure.isEmpty())
+				{
+					Map<Integer, Integer> versions = findVersions(orders, unsure);
+					for (int i : unsure)
+					{
+						Order order = orders.get(i);
+						Integer current = versions.get(order.getId());
+						result[i] = current == null ? WriteOutcome.NOT_FOUND
+								: counts[i - start] == Statement.SUCCESS_NO_INFO && current == order.getVersion() + 1 ? WriteOutcome.DONE
+								: WriteOutcome.CONFLICT;
+					}
+				}
+				
+				// the updated orders now carry the version they were saved with
+				for (int i = start; i < end; i++)
+				{
+					if (result[i] == WriteOutcome.DONE)
+					{
+						orders.get(i).setVersion(orders.get(i).getVersion() + 1);
+						changed = true;
+					}
+				}
+			}
+			
+			// handle database exceptions
+			catch (DataAccessException e)
+			{
+				// print stack trace and flag the orders the driver did not report as updated, so the rest can still be updated
+				e.printStackTrace();
+				int[] counts = failedBatchCounts(e);
+				for (int i = start; i < end; i++)
+				{
+					if (i - start < counts.length && counts[i - start] > 0)
+					{
+						// the update was applied before the batch failed, so the order carries its new version
+						result[i] = WriteOutcome.DONE;
+						orders.get(i).setVersion(orders.get(i).getVersion() + 1);
+						changed = true;
+					}
+					else
+					{
+						result[i] = WriteOutcome.FAILED;
+					}
+				}
+			}
+		}
+		
+		// record the change for conditional reads only if an order was updated, in a failed chunk or not
+		if (changed)
+		{
+			changed();
+		}
+		
+		// return outcomes
+		return result;
+	}
+	
 	@Override
 	public boolean delete(Order order) 
 	{	
 		// SQL to delete an order
-		String sql = "DELETE FROM orders WHERE ID = :id";
+		String sql = "DELETE FROM orders WHERE ID = ?";
 		
 		// use try/catch to handle database exception
 		try
 		{
-
-			// make the order passed in the parameter source for the query
-			BeanPropertySqlParameterSource params = new BeanPropertySqlParameterSource(order);
-	
-			if (namedParameterJdbcTemplate.update(sql, params) != 0)
-			{			
+			// execute statement with the order's ID bound and IF successful
+			if (namedParameterJdbcTemplate.getJdbcOperations().update(sql, ps -> ps.setInt(1, order.getId())) != 0)
+			{
+				// record the change for conditional reads
+				changed();
+							
 				// inform the business layer the operation was successful
 				return true;
 			}
@@ -184,4 +644,309 @@ public class OrdersDataService implements DataAccessInterface<Order>
 			throw new DatabaseException(e);
 		}
 	}
+	
+	@Override
+	public WriteOutcome[] deleteAll(List<Order> orders) 
+	{
+		// initialize the outcomes to return
+		WriteOutcome[] result = new WriteOutcome[orders.size()];
+		boolean changed = false;
+		
+		// delete the orders one chunk of IDs at a time
+		for (int start = 0; start < orders.size(); start += batchSize)
+		{
+			int end = Math.min(start + batchSize, orders.size());
+			
+			// use try/catch to handle database exceptions
+			try 
+			{
+				// find which of the IDs exist, then delete them in one statement
+				List<Integer> ids = new ArrayList<Integer>(end - start);
+				for (int i = start; i < end; i++)
+				{
+					ids.add(orders.get(i).getId());
+				}
+				MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+				Set<Integer> existing = new HashSet<Integer>(namedParameterJdbcTemplate.queryForList("SELECT ID FROM orders WHERE ID IN (:ids)", params, Integer.class));
+				if (!existing.isEmpty())
+				{
+					namedParameterJdbcTemplate.update("DELETE FROM orders WHERE ID IN (:ids)", new MapSqlParameterSource("ids", existing));
+					changed = true;
+				}
+				
+				// an order that existed is gone now, whether this statement or a concurrent one deleted it
+				for (int i = start; i < end; i++)
+				{
+					result[i] = existing.contains(orders.get(i).getId()) ? WriteOutcome.DONE : WriteOutcome.NOT_FOUND;
+				}
+			}
+			
+			// handle database exceptions
+			catch (DataAccessException e)
+			{
+				// print stack trace and flag this chunk as failed so the rest can still be deleted
+				e.printStackTrace();
+				for (int i = start; i < end; i++)
+				{
+					result[i] = WriteOutcome.FAILED;
+				}
+			}
+		}
+		
+		// record the change for conditional reads
+		if (changed)
+		{
+			changed();
+		}
+		
+		// return outcomes
+		return result;
+	}
+	
+	/**
+	 * This method binds an order to the parameters of the INSERT statement
+	 * @param ps the statement, with ORDER_NO, PRODUCT_NAME, PRICE_CENTS and QUANTITY placeholders in that order
+	 * @param order the order to insert
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	private static void bindInsert(PreparedStatement ps, Order order) throws SQLException
+	{
+		ps.setString(1, order.getOrderNo());
+		ps.setString(2, order.getProductName());
+		ps.setLong(3, order.getPriceCents());
+		ps.setInt(4, order.getQuantity());
+	}
+	
+	/**
+	 * This method binds an order to the parameters of the UPDATE statement
+	 * @param ps the statement, with the INSERT placeholders followed by ID and VERSION
+	 * @param order the order to update
+	 * @throws SQLException if a parameter cannot be set
+	 */
+	private static void bindUpdate(PreparedStatement ps, Order order) throws SQLException
+	{
+		bindInsert(ps, order);
+		ps.setInt(5, order.getId());
+		ps.setInt(6, order.getVersion());
+	}
+	
+	/**
+	 * This method sends one statement per order of a chunk to the database as a batch
+	 * @param sql the SQL with positional placeholders
+	 * @param orders the orders being written
+	 * @param start the position of the first order of the chunk
+	 * @param end the position after the last order of the chunk
+	 * @param binder binds an order to the statement
+	 * @return the update count of each statement
+	 */
+	private int[] batchUpdate(String sql, final List<Order> orders, final int start, final int end, final ParameterizedPreparedStatementSetter<Order> binder)
+	{
+		return namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(sql, new BatchPreparedStatementSetter() 
+		{
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException
+			{
+				binder.setValues(ps, orders.get(start + i));
+			}
+			
+			@Override
+			public int getBatchSize()
+			{
+				return end - start;
+			}
+		});
+	}
+	
+	/**
+	 * This method inserts a chunk of orders in one batch and collects the IDs the driver generated for them
+	 * @param sql the insert statement
+	 * @param orders the orders of the bulk insert
+	 * @param start the position of the first order of the chunk
+	 * @param end the position after the last order of the chunk
+	 * @param keys the list to add the generated IDs to, in statement order
+	 * @return the update count of each statement
+	 */
+	private int[] batchInsert(String sql, final List<Order> orders, final int start, final int end, final List<Integer> keys)
+	{
+		return namedParameterJdbcTemplate.getJdbcOperations().execute((ConnectionCallback<int[]>) connection -> {
+			try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+			{
+				for (int i = start; i < end; i++)
+				{
+					bindInsert(ps, orders.get(i));
+					ps.addBatch();
+				}
+				int[] counts = ps.executeBatch();
+				
+				// a driver may return the keys of every statement, of the last one only, or none at all
+				try (ResultSet rs = ps.getGeneratedKeys())
+				{
+					while (rs != null && rs.next())
+					{
+						keys.add(rs.getInt(1));
+					}
+				}
+				return counts;
+			}
+		});
+	}
+	
+	/**
+	 * This method records which orders of a chunk were inserted
+	 * @param counts the update count of each statement the driver reported
+	 * @param result the success flags of the bulk insert
+	 * @param start the position of the first order of the chunk
+	 */
+	private static void recordInserts(int[] counts, boolean[] result, int start)
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			result[start + i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+		}
+	}
+	
+	/**
+	 * This method gives the orders of a chunk that were inserted the IDs they were stored with. The keys the driver
+	 * returned are used when there is one for every order of the chunk; otherwise the IDs are read back by the
+	 * unique order numbers
+	 * @param orders the orders of the bulk insert
+	 * @param start the position of the first order of the chunk
+	 * @param end the position after the last order of the chunk
+	 * @param created the success flags of the bulk insert
+	 * @param keys the IDs the driver generated for the chunk, in statement order
+	 */
+	private void assignIds(List<Order> orders, int start, int end, boolean[] created, List<Integer> keys)
+	{
+		// the keys match the orders one to one only if the whole chunk was inserted
+		if (keys.size() == end - start)
+		{
+			for (int i = start; i < end; i++)
+			{
+				orders.get(i).setId(keys.get(i - start));
+			}
+			return;
+		}
+		
+		List<String> orderNos = new ArrayList<String>(end - start);
+		for (int i = start; i < end; i++)
+		{
+			if (created[i])
+			{
+				orderNos.add(orders.get(i).getOrderNo());
+			}
+		}
+		if (orderNos.isEmpty())
+		{
+			return;
+		}
+		
+		// use try/catch to handle database exceptions
+		try
+		{
+			Map<String, Integer> ids = new HashMap<String, Integer>();
+			namedParameterJdbcTemplate.query("SELECT ID, ORDER_NO FROM orders WHERE ORDER_NO IN (:orderNos)", new MapSqlParameterSource("orderNos", orderNos),
+					(RowCallbackHandler) rs -> ids.put(rs.getString(2), rs.getInt(1)));
+			for (int i = start; i < end; i++)
+			{
+				Integer id = ids.get(orders.get(i).getOrderNo());
+				if (created[i] && id != null)
+				{
+					orders.get(i).setId(id);
+				}
+			}
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace; the orders are created, only without their IDs
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * This method reads the update counts a failed batch reported. A driver that stops at the refused statement
+	 * reports only the statements before it, and one that carries on reports EXECUTE_FAILED for the refused ones
+	 * @param e the failure of the batch
+	 * @return the update count of each statement the driver reported, empty if it reported none
+	 */
+	private static int[] failedBatchCounts(DataAccessException e)
+	{
+		for (Throwable cause = e; cause != null; cause = cause.getCause())
+		{
+			if (cause instanceof BatchUpdateException && ((BatchUpdateException) cause).getUpdateCounts() != null)
+			{
+				return ((BatchUpdateException) cause).getUpdateCounts();
+			}
+		}
+		return new int[0];
+	}
+	
+	/**
+	 * This method reads the current versions of some of the orders of a bulk update
+	 * @param orders the orders of the bulk update
+	 * @param positions the positions of the orders to read
+	 * @return the version of each order that exists, by ID
+	 */
+	private Map<Integer, Integer> findVersions(List<Order> orders, List<Integer> positions)
+	{
+		List<Integer> ids = new ArrayList<Integer>(positions.size());
+		for (int i : positions)
+		{
+			ids.add(orders.get(i).getId());
+		}
+		Map<Integer, Integer> versions = new HashMap<Integer, Integer>();
+		namedParameterJdbcTemplate.query("SELECT ID, VERSION FROM orders WHERE ID IN (:ids)", new MapSqlParameterSource("ids", ids),
+				(RowCallbackHandler) rs -> versions.put(rs.getInt(1), rs.getInt(2)));
+		return versions;
+	}
+	
+	@Override
+	public TableVersion findVersion() 
+	{
+		// SQL to get the version row of the orders table
+		String sql = "SELECT VERSION, LAST_MODIFIED FROM orders_version WHERE ID = 1";
+		
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute query and return the version
+			List<TableVersion> result = namedParameterJdbcTemplate.getJdbcOperations().query(sql, NO_PARAMETERS,
+					(rs, rowNum) -> new TableVersion(rs.getLong(1), rs.getLong(2)));
+			return result.get(0);
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
+	
+	/**
+	 * This method records a change to the orders table in its version row. The row is updated after the change,
+	 * so a reader that sees a version also sees every change the version counts
+	 */
+	private void changed()
+	{
+		// use try/catch to handle database exceptions
+		try 
+		{
+			// execute statement with the time of the change bound
+			namedParameterJdbcTemplate.getJdbcOperations().update("UPDATE orders_version SET VERSION = VERSION + 1, LAST_MODIFIED = ? WHERE ID = 1",
+					ps -> ps.setLong(1, System.currentTimeMillis()));
+		}
+		
+		// handle database exceptions
+		catch (DataAccessException e)
+		{
+			// print stack trace
+			e.printStackTrace(); 
+			// wrap exception in custom database exception for encapsulation
+			throw new DatabaseException(e);
+		}
+	}
 }
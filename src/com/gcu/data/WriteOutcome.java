@@ -0,0 +1,18 @@
+package com.gcu.data;
+
+/**
+ * The outcome of one record of a bulk update or delete
+ * @author Josh Van de Walle
+ *
+ */
+public enum WriteOutcome 
+{
+	// the record was changed
+	DONE,
+	// no record has the ID
+	NOT_FOUND,
+	// the record was changed by someone else since the client read it
+	CONFLICT,
+	// the database refused the statement
+	FAILED
+}
@@ -1,12 +1,36 @@
 package com.gcu.model;
 
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.gcu.util.money.MoneyDeserializer;
+import com.gcu.util.money.MoneySerializer;
+
+// keeps price where it was in the JSON of an order before it was held in cents
+@JsonPropertyOrder({ "id", "orderNo", "productName", "price", "quantity", "version" })
 public class Order {
 	// unique database ID
 	private int id;
+	@NotBlank
 	private String orderNo;
+	@NotBlank
 	private String productName;
-	private float price;
+	// price in cents, so totals are exact. Clients send and receive it as the decimal price
+	@PositiveOrZero
+	@JsonProperty("price")
+	@JsonSerialize(using = MoneySerializer.class)
+	@JsonDeserialize(using = MoneyDeserializer.class)
+	private long priceCents;
+	@Positive
 	private int quantity;
+	// row version, echoed back on update so a concurrent change is detected
+	@PositiveOrZero
+	private int version;
 	public String getOrderNo() {
 		return orderNo;
 	}
@@ -19,11 +43,11 @@ public class Order {
 	public void setProductName(String productName) {
 		this.productName = productName;
 	}
-	public float getPrice() {
-		return price;
+	public long getPriceCents() {
+		return priceCents;
 	}
-	public void setPrice(float price) {
-		this.price = price;
+	public void setPriceCents(long priceCents) {
+		this.priceCents = priceCents;
 	}
 	public int getQuantity() {
 		return quantity;
@@ -38,26 +62,43 @@ public class Order {
 	public void setId(int id) {
 		this.id = id;
 	}
-	public Order(String orderNo, String productName, float price, int quantity) {
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
+	public Order(String orderNo, String productName, long priceCents, int quantity) {
 		super();
 		this.orderNo = orderNo;
 		this.productName = productName;
-		this.price = price;
+		this.priceCents = priceCents;
 		this.quantity = quantity;
 	}
 	
-	public Order(int id, String orderNo, String productName, float price, int quantity) {
+	public Order(int id, String orderNo, String productName, long priceCents, int quantity) {
 		super();
 		this.id = id;
 		this.orderNo = orderNo;
 		this.productName = productName;
-		this.price = price;
+		this.priceCents = priceCents;
 		this.quantity = quantity;
 	}
+	public Order(int id, String orderNo, String productName, long priceCents, int quantity, int version) {
+		this(id, orderNo, productName, priceCents, quantity);
+		this.version = version;
+	}
 	public Order() {
 		super();
 	}
 	
+	/**
+	 * The fields a list of orders can be sorted by. TOTAL is price times quantity
+	 */
+	public enum Sort {
+		ID, ORDER_NO, PRODUCT_NAME, PRICE, QUANTITY, TOTAL
+	}
+	
 	
 
 }
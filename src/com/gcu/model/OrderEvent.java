@@ -0,0 +1,58 @@
+package com.gcu.model;
+
+/**
+ * A change to an order, published to the change feed after the change is saved
+ * @author Josh Van de Walle
+ *
+ */
+public class OrderEvent {
+	// position of the event in the feed, increasing by one per event
+	private long sequence;
+	private Type type;
+	// the order as it was saved; only the ID is known for a cancelled order
+	private Order order;
+	// milliseconds since the epoch when the event was published
+	private long timestamp;
+	public long getSequence() {
+		return sequence;
+	}
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+	public Type getType() {
+		return type;
+	}
+	public void setType(Type type) {
+		this.type = type;
+	}
+	public Order getOrder() {
+		return order;
+	}
+	public void setOrder(Order order) {
+		this.order = order;
+	}
+	public long getTimestamp() {
+		return timestamp;
+	}
+	public void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+	public OrderEvent(long sequence, Type type, Order order, long timestamp) {
+		super();
+		this.sequence = sequence;
+		this.type = type;
+		this.order = order;
+		this.timestamp = timestamp;
+	}
+	public OrderEvent() {
+		super();
+	}
+	
+	/**
+	 * The kinds of change
+	 */
+	public enum Type {
+		PLACED, EDITED, CANCELLED
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.gcu.model;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.Digits;
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * Optional criteria that narrow an orders query. A criterion left null does not filter
+ * @author Josh Van de Walle
+ *
+ */
+public class OrderFilter {
+	// exact product name
+	private String productName;
+	// inclusive price range, in whole cents so it converts to the stored cents exactly
+	@PositiveOrZero
+	@Digits(integer = 16, fraction = 2)
+	private BigDecimal minPrice;
+	@PositiveOrZero
+	@Digits(integer = 16, fraction = 2)
+	private BigDecimal maxPrice;
+	// inclusive quantity range
+	@PositiveOrZero
+	private Integer minQuantity;
+	@PositiveOrZero
+	private Integer maxQuantity;
+	public String getProductName() {
+		return productName;
+	}
+	public void setProductName(String productName) {
+		this.productName = productName;
+	}
+	public BigDecimal getMinPrice() {
+		return minPrice;
+	}
+	public void setMinPrice(BigDecimal minPrice) {
+		this.minPrice = minPrice;
+	}
+	public BigDecimal getMaxPrice() {
+		return maxPrice;
+	}
+	public void setMaxPrice(BigDecimal maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+	public Integer getMinQuantity() {
+		return minQuantity;
+	}
+	public void setMinQuantity(Integer minQuantity) {
+		this.minQuantity = minQuantity;
+	}
+	public Integer getMaxQuantity() {
+		return maxQuantity;
+	}
+	public void setMaxQuantity(Integer maxQuantity) {
+		this.maxQuantity = maxQuantity;
+	}
+	
+	/**
+	 * This method checks that each range is not empty
+	 * @return true if the ranges can match an order
+	 */
+	public boolean hasValidRanges() {
+		return (minPrice == null || maxPrice == null || minPrice.compareTo(maxPrice) <= 0)
+				&& (minQuantity == null || maxQuantity == null || minQuantity <= maxQuantity);
+	}
+	
+	public OrderFilter() {
+		super();
+	}
+}
@@ -0,0 +1,64 @@
+package com.gcu.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.gcu.util.money.MoneySerializer;
+
+/**
+ * The totals of the orders for one product
+ * @author Josh Van de Walle
+ *
+ */
+public class ProductSummary {
+	private String productName;
+	// number of orders for the product
+	private long orders;
+	// units ordered across those orders
+	private long quantity;
+	// sum of price times quantity across those orders, in cents. Clients receive it as the decimal revenue
+	@JsonProperty("revenue")
+	@JsonSerialize(using = MoneySerializer.class)
+	private long revenueCents;
+	public String getProductName() {
+		return productName;
+	}
+	public void setProductName(String productName) {
+		this.productName = productName;
+	}
+	public long getOrders() {
+		return orders;
+	}
+	public void setOrders(long orders) {
+		this.orders = orders;
+	}
+	public long getQuantity() {
+		return quantity;
+	}
+	public void setQuantity(long quantity) {
+		this.quantity = quantity;
+	}
+	public long getRevenueCents() {
+		return revenueCents;
+	}
+	public void setRevenueCents(long revenueCents) {
+		this.revenueCents = revenueCents;
+	}
+	
+	/**
+	 * The fields a product summary can be sorted by
+	 */
+	public enum Sort {
+		PRODUCT_NAME, ORDERS, QUANTITY, REVENUE
+	}
+	
+	public ProductSummary(String productName, long orders, long quantity, long revenueCents) {
+		super();
+		this.productName = productName;
+		this.orders = orders;
+		this.quantity = quantity;
+		this.revenueCents = revenueCents;
+	}
+	public ProductSummary() {
+		super();
+	}
+}
@@ -0,0 +1,34 @@
+package com.gcu.model;
+
+/**
+ * The version of a table and when it last changed, as stored in the database beside the table
+ * @author Josh Van de Walle
+ *
+ */
+public class TableVersion {
+	// increases by one with every change to the table
+	private long version;
+	// milliseconds since the epoch of the last change, or 0 if it is not known
+	private long lastModified;
+	public long getVersion() {
+		return version;
+	}
+	public void setVersion(long version) {
+		this.version = version;
+	}
+	public long getLastModified() {
+		return lastModified;
+	}
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+	public TableVersion(long version, long lastModified) {
+		super();
+		this.version = version;
+		this.lastModified = lastModified;
+	}
+	public TableVersion() {
+		super();
+	}
+
+}
@@ -0,0 +1,489 @@
+package com.gcu.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.gcu.model.Order;
+import com.gcu.util.RestDto;
+import com.gcu.util.admission.ConcurrencyLimiter;
+import com.gcu.util.admission.ConcurrencyLimiterStats;
+import com.gcu.util.admission.RateLimiter;
+import com.gcu.util.admission.RateLimiterStats;
+import com.gcu.util.cache.CacheInterface;
+import com.gcu.util.cache.CacheStats;
+import com.gcu.util.cache.FlightStats;
+import com.gcu.util.cache.SingleFlight;
+import com.gcu.util.events.EventStats;
+import com.gcu.util.events.OrderEventBus;
+import com.gcu.util.idempotency.IdempotencyStats;
+import com.gcu.util.idempotency.IdempotencyStore;
+import com.gcu.util.ingest.IngestionStats;
+import com.gcu.util.ingest.OrderIngestionQueue;
+import com.gcu.util.metrics.MeteredDataSource;
+import com.gcu.util.metrics.MethodMetrics;
+import com.gcu.util.metrics.MetricsRegistry;
+import com.gcu.util.metrics.PoolStats;
+import com.gcu.util.metrics.PrometheusWriter;
+import com.gcu.util.routing.ReplicaRoutingDataSource;
+
+/**
+ * The Monitoring Service exposes runtime statistics used to size and tune the application
+ * @author Josh Van de Walle
+ *
+ */
+@RestController()
+@RequestMapping("/service")
+public class MonitoringService 
+{
+	// The cache placed in front of the orders data service
+	CacheInterface<Order> cache;
+	
+	// The metered connection pool of the primary database
+	MeteredDataSource dataSource;
+	
+	// The data source that routes reads to the replicas
+	ReplicaRoutingDataSource routing;
+	
+	// The single-flight layer that coalesces reads of all orders
+	SingleFlight flights;
+	
+	// The per-client rate limiter
+	RateLimiter rateLimiter;
+	
+	// The adaptive concurrency limiter
+	ConcurrencyLimiter concurrencyLimiter;
+	
+	// The registry of method metrics
+	MetricsRegistry registry;
+	
+	// The write-behind ingestion queue
+	OrderIngestionQueue ingestion;
+	
+	// The change feed
+	OrderEventBus events;
+	
+	// The store of responses to idempotent writes
+	IdempotencyStore idempotency;
+	
+	/**
+	 * This method is used for setter injection of the orders cache
+	 * @param cache the cache to report on
+	 */
+	@Autowired(required = false)
+	public void setCache(CacheInterface<Order> cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * This method is used for setter injection of the metered connection pool
+	 * @param dataSource the connection pool to report on
+	 */
+	@Autowired(required = false)
+	public void setDataSource(@Qualifier("dataSource") MeteredDataSource dataSource)
+	{
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * This method is used for setter injection of the replica routing data source
+	 * @param routing the routing data source to report on
+	 */
+	@Autowired(required = false)
+	public void setRouting(ReplicaRoutingDataSource routing)
+	{
+		this.routing = routing;
+	}
+	
+	/**
+	 * This method is used for setter injection of the method metrics registry
+	 * @param registry the registry to report on
+	 */
+	@Autowired(required = false)
+	public void setRegistry(MetricsRegistry registry)
+	{
+		this.registry = registry;
+	}
+	
+	/**
+	 * This method is used for setter injection of the write-behind ingestion queue
+	 * @param ingestion the queue to report on
+	 */
+	@Autowired(required = false)
+	public void setIngestion(OrderIngestionQueue ingestion)
+	{
+		this.ingestion = ingestion;
+	}
+	
+	/**
+	 * This method is used for setter injection of the single-flight layer
+	 * @param flights the single-flight layer to report on
+	 */
+	@Autowired(required = false)
+	public void setFlights(SingleFlight flights)
+	{
+		this.flights = flights;
+	}
+	
+	/**
+	 * This method is used for setter injection of the rate limiter
+	 * @param rateLimiter the rate limiter to report on
+	 */
+	@Autowired(required = false)
+	public void setRateLimiter(RateLimiter rateLimiter)
+	{
+		this.rateLimiter = rateLimiter;
+	}
+	
+	/**
+	 * This method is used for setter injection of the concurrency limiter
+	 * @param concurrencyLimiter the concurrency limiter to report on
+	 */
+	@Autowired(required = false)
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter)
+	{
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+	
+	/**
+	 * This method is used for setter injection of the change feed
+	 * @param events the change feed to report on
+	 */
+	@Autowired(required = false)
+	public void setEvents(OrderEventBus events)
+	{
+		this.events = events;
+	}
+	
+	/**
+	 * This method is used for setter injection of the idempotency store
+	 * @param idempotency the idempotency store to report on
+	 */
+	@Autowired(required = false)
+	public void setIdempotency(IdempotencyStore idempotency)
+	{
+		this.idempotency = idempotency;
+	}
+	
+	/**
+	 * This method handles retrieving every metric in the Prometheus text format
+	 * @return the metrics page
+	 */
+	@GetMapping(value = "/metrics", produces = PrometheusWriter.CONTENT_TYPE)
+	public String handleMetrics()
+	{
+		PrometheusWriter writer = new PrometheusWriter();
+		
+		// method call counts, error counts and latency
+		if (registry != null)
+		{
+			List<MethodMetrics> methods = registry.getMethods();
+			writer.family("app_method_calls_total", "counter", "Calls to controller, business and data methods.");
+			for (MethodMetrics method : methods)
+			{
+				writer.sample("app_method_calls_total", PrometheusWriter.label("method", method.getName()), method.getCalls());
+			}
+			writer.family("app_method_errors_total", "counter", "Calls that threw or returned a server error.");
+			for (MethodMetrics method : methods)
+			{
+				writer.sample("app_method_errors_total", PrometheusWriter.label("method", method.getName()), method.getErrors());
+			}
+			writer.family("app_method_latency_seconds", "summary", "Latency of controller, business and data methods. A .submit method is an asynchronous handler timed until it hands off its work.");
+			for (MethodMetrics method : methods)
+			{
+				writer.summary("app_method_latency_seconds", PrometheusWriter.label("method", method.getName()), method.getLatency().snapshot());
+			}
+			writer.family("app_request_latency_seconds", "summary", "Latency of whole requests, including response serialization.");
+			for (MethodMetrics handler : registry.getRequests())
+			{
+				writer.summary("app_request_latency_seconds", PrometheusWriter.label("handler", handler.getName()), handler.getLatency().snapshot());
+			}
+		}
+		
+		// connection pool gauges
+		if (dataSource != null)
+		{
+			PoolStats pool = dataSource.getPoolStats();
+			writer.family("db_pool_active_connections", "gauge", "Connections in use.").sample("db_pool_active_connections", null, pool.getActive());
+			writer.family("db_pool_idle_connections", "gauge", "Idle connections.").sample("db_pool_idle_connections", null, pool.getIdle());
+			writer.family("db_pool_waiters", "gauge", "Threads waiting for a connection.").sample("db_pool_waiters", null, pool.getWaiters());
+			writer.family("db_pool_max_connections", "gauge", "Maximum pool size.").sample("db_pool_max_connections", null, pool.getMaxTotal());
+			writer.family("db_pool_borrow_seconds", "summary", "Time spent borrowing a connection.").summary("db_pool_borrow_seconds", null, dataSource.getBorrowLatency().snapshot());
+		}
+		
+		// reads served by each replica
+		if (routing != null && routing.getReplicaReads().length > 0)
+		{
+			long[] reads = routing.getReplicaReads();
+			writer.family("db_replica_reads_total", "counter", "Reads served by each read replica.");
+			for (int i = 0; i < reads.length; i++)
+			{
+				writer.sample("db_replica_reads_total", PrometheusWriter.label("replica", String.valueOf(i)), reads[i]);
+			}
+			writer.family("db_replica_fallback_reads_total", "counter", "Reads sent to the primary because no replica was available.").sample("db_replica_fallback_reads_total", null, routing.getFallbackReads());
+			writer.family("db_replica_failures_total", "counter", "Failed replica connection borrows.").sample("db_replica_failures_total", null, routing.getReplicaFailures());
+		}
+		
+		// cache counters
+		if (cache != null)
+		{
+			CacheStats stats = cache.getStats();
+			writer.family("cache_hits_total", "counter", "Orders cache hits.").sample("cache_hits_total", null, stats.getHits());
+			writer.family("cache_misses_total", "counter", "Orders cache misses.").sample("cache_misses_total", null, stats.getMisses());
+			writer.family("cache_evictions_total", "counter", "Orders cache evictions.").sample("cache_evictions_total", null, stats.getEvictions());
+			writer.family("cache_entries", "gauge", "Orders cache entries.").sample("cache_entries", null, stats.getSize());
+		}
+		
+		// admission control gauges and counters
+		if (rateLimiter != null && rateLimiter.isEnabled())
+		{
+			RateLimiterStats stats = rateLimiter.getStats();
+			writer.family("ratelimit_clients", "gauge", "Clients with a token bucket.").sample("ratelimit_clients", null, stats.getClients());
+			writer.family("ratelimit_allowed_total", "counter", "Requests within their client's rate.").sample("ratelimit_allowed_total", null, stats.getAllowed());
+			writer.family("ratelimit_rejected_total", "counter", "Requests rejected with 429 for exceeding their client's rate.").sample("ratelimit_rejected_total", null, stats.getRejected());
+		}
+		if (concurrencyLimiter != null && concurrencyLimiter.isEnabled())
+		{
+			ConcurrencyLimiterStats stats = concurrencyLimiter.getStats();
+			writer.family("concurrency_limit", "gauge", "Requests admitted to run at once.").sample("concurrency_limit", null, stats.getLimit());
+			writer.family("concurrency_in_flight", "gauge", "Admitted requests running now.").sample("concurrency_in_flight", null, stats.getInFlight());
+			writer.family("concurrency_rejected_total", "counter", "Requests rejected with 503 for exceeding the concurrency limit.").sample("concurrency_rejected_total", null, stats.getRejected());
+			writer.family("concurrency_decreases_total", "counter", "Times the concurrency limit was cut after slow requests.").sample("concurrency_decreases_total", null, stats.getDecreases());
+		}
+		
+		// single-flight counters
+		if (flights != null)
+		{
+			FlightStats stats = flights.getStats();
+			writer.family("singleflight_requests_total", "counter", "Reads of all orders that reached the database layer.").sample("singleflight_requests_total", null, stats.getRequests());
+			writer.family("singleflight_shared_total", "counter", "Reads of all orders that shared a query already running.").sample("singleflight_shared_total", null, stats.getShared());
+			writer.family("singleflight_coalescing_ratio", "gauge", "Fraction of reads of all orders that shared a query.").sample("singleflight_coalescing_ratio", null, stats.getCoalescingRatio());
+		}
+		
+		// change feed gauges and counters
+		if (events != null)
+		{
+			EventStats stats = events.getStats();
+			writer.family("events_subscribers", "gauge", "Change feed subscribers.").sample("events_subscribers", null, stats.getSubscribers());
+			writer.family("events_published_total", "counter", "Change feed events published.").sample("events_published_total", null, stats.getPublished());
+			writer.family("events_delivered_total", "counter", "Change feed events sent to subscribers.").sample("events_delivered_total", null, stats.getDelivered());
+			writer.family("events_dropped_total", "counter", "Change feed events dropped for slow subscribers.").sample("events_dropped_total", null, stats.getDropped());
+			writer.family("events_disconnected_total", "counter", "Slow subscribers disconnected.").sample("events_disconnected_total", null, stats.getDisconnected());
+		}
+		
+		// idempotency store gauges and counters
+		if (idempotency != null)
+		{
+			IdempotencyStats stats = idempotency.getStats();
+			writer.family("idempotency_keys", "gauge", "Idempotency keys held.").sample("idempotency_keys", null, stats.getEntries());
+			writer.family("idempotency_replayed_total", "counter", "Retries answered with a stored response.").sample("idempotency_replayed_total", null, stats.getReplayed());
+			writer.family("idempotency_coalesced_total", "counter", "Retries that waited for the request holding the key.").sample("idempotency_coalesced_total", null, stats.getCoalesced());
+			writer.family("idempotency_rejected_total", "counter", "Keys reused for a different request.").sample("idempotency_rejected_total", null, stats.getRejected());
+			writer.family("idempotency_evictions_total", "counter", "Idempotency keys evicted before they expired.").sample("idempotency_evictions_total", null, stats.getEvictions());
+		}
+		
+		// ingestion queue gauges
+		if (ingestion != null && ingestion.isEnabled())
+		{
+			IngestionStats stats = ingestion.getStats();
+			writer.family("ingest_queue_depth", "gauge", "Orders accepted but not yet written.").sample("ingest_queue_depth", null, stats.getDepth());
+			writer.family("ingest_lag_seconds", "gauge", "Age of the oldest unwritten order.").sample("ingest_lag_seconds", null, stats.getLagMillis() / 1000.0);
+			writer.family("ingest_written_total", "counter", "Orders written to the database.").sample("ingest_written_total", null, stats.getWritten());
+			writer.family("ingest_rejected_total", "counter", "Orders the database refused.").sample("ingest_rejected_total", null, stats.getRejected());
+			writer.family("ingest_journal_bytes", "gauge", "Size of the live journal segments.").sample("ingest_journal_bytes", null, stats.getJournalBytes());
+		}
+		
+		// return the metrics page
+		return writer.toString();
+	}
+	
+	/**
+	 * This method handles retrieving the connection pool gauges
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/poolStats")
+	public RestDto<PoolStats> handlePoolStats()
+	{
+		// IF the pool is not metered
+		if (dataSource == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<PoolStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<PoolStats> data = new ArrayList<PoolStats>();
+		// add the current gauges to the response data
+		data.add(dataSource.getPoolStats());
+		
+		// return DTO containing the gauges
+		return new RestDto<PoolStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the ingestion queue depth, lag and counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/ingestionStats")
+	public RestDto<IngestionStats> handleIngestionStats()
+	{
+		// IF orders are not written behind
+		if (ingestion == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<IngestionStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<IngestionStats> data = new ArrayList<IngestionStats>();
+		// add the current gauges to the response data
+		data.add(ingestion.getStats());
+		
+		// return DTO containing the gauges
+		return new RestDto<IngestionStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the change feed counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/eventStats")
+	public RestDto<EventStats> handleEventStats()
+	{
+		// IF there is no change feed
+		if (events == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<EventStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<EventStats> data = new ArrayList<EventStats>();
+		// add the current counters to the response data
+		data.add(events.getStats());
+		
+		// return DTO containing the counters
+		return new RestDto<EventStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the idempotency store counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/idempotencyStats")
+	public RestDto<IdempotencyStats> handleIdempotencyStats()
+	{
+		// IF there is no idempotency store
+		if (idempotency == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<IdempotencyStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<IdempotencyStats> data = new ArrayList<IdempotencyStats>();
+		// add the current counters to the response data
+		data.add(idempotency.getStats());
+		
+		// return DTO containing the counters
+		return new RestDto<IdempotencyStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the rate limiter counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/rateLimitStats")
+	public RestDto<RateLimiterStats> handleRateLimitStats()
+	{
+		// IF there is no rate limiter
+		if (rateLimiter == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<RateLimiterStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<RateLimiterStats> data = new ArrayList<RateLimiterStats>();
+		// add the current counters to the response data
+		data.add(rateLimiter.getStats());
+		
+		// return DTO containing the counters
+		return new RestDto<RateLimiterStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the concurrency limiter gauges and counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/concurrencyStats")
+	public RestDto<ConcurrencyLimiterStats> handleConcurrencyStats()
+	{
+		// IF there is no concurrency limiter
+		if (concurrencyLimiter == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<ConcurrencyLimiterStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<ConcurrencyLimiterStats> data = new ArrayList<ConcurrencyLimiterStats>();
+		// add the current gauges and counters to the response data
+		data.add(concurrencyLimiter.getStats());
+		
+		// return DTO containing the gauges and counters
+		return new RestDto<ConcurrencyLimiterStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the single-flight counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/flightStats")
+	public RestDto<FlightStats> handleFlightStats()
+	{
+		// IF reads are not coalesced
+		if (flights == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<FlightStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<FlightStats> data = new ArrayList<FlightStats>();
+		// add the current counters to the response data
+		data.add(flights.getStats());
+		
+		// return DTO containing the counters
+		return new RestDto<FlightStats>(data, 200, "OK");
+	}
+	
+	/**
+	 * This method handles retrieving the orders cache counters
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/cacheStats")
+	public RestDto<CacheStats> handleCacheStats()
+	{
+		// IF caching is disabled
+		if (cache == null)
+		{
+			// return DTO informing the client there is nothing to report
+			return new RestDto<CacheStats>(null, 404, "Not found");
+		}
+		
+		// instantiate response data
+		List<CacheStats> data = new ArrayList<CacheStats>();
+		// add the current counters to the response data
+		data.add(cache.getStats());
+		
+		// return DTO containing the counters
+		return new RestDto<CacheStats>(data, 200, "OK");
+	}
+}
@@ -1,24 +1,78 @@
 package com.gcu.service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.Validator;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.gcu.business.OrdersBusinessInterface;
+import com.gcu.data.WriteOutcome;
 import com.gcu.model.Order;
+import com.gcu.model.OrderFilter;
+import com.gcu.model.ProductSummary;
+import com.gcu.model.TableVersion;
+import com.gcu.util.ImportResult;
+import com.gcu.util.ItemResult;
 import com.gcu.util.RestDto;
+import com.gcu.util.csv.CsvReader;
+import com.gcu.util.csv.CsvWriter;
+import com.gcu.util.csv.OrderCsv;
+import com.gcu.util.events.DropPolicy;
+import com.gcu.util.events.OrderEventBus;
+import com.gcu.util.exception.ConcurrentUpdateException;
+import com.gcu.util.exception.CsvFormatException;
+import com.gcu.util.exception.IdempotencyKeyReusedException;
+import com.gcu.util.idempotency.IdempotencyStore;
+import com.gcu.util.routing.ReadRoutingContext;
 
 /**
  * The Order Service is an API facade over application business logic
@@ -29,9 +83,60 @@ import com.gcu.util.RestDto;
 @RequestMapping("/service")
 public class OrderService 
 {
+	// Logger used to report import and export throughput, and requests that failed on the executor
+	private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+	
+	// The largest page of orders a client may request
+	private static final int MAX_PAGE_SIZE = 1000;
+	
+	// The most orders a client may place in one bulk request
+	private static final int MAX_BULK_SIZE = 10000;
+	
+	// The most change feed events that may wait for one subscriber
+	private static final int MAX_EVENT_BUFFER = 10000;
+	
+	// The longest idempotency key a client may send
+	private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+	
+	// The most errors an import reports; the counts still cover every record
+	private static final int MAX_IMPORT_ERRORS = 100;
+	
+	// The longest CSV field an import accepts
+	private static final int MAX_CSV_FIELD_LENGTH = 10000;
+	
+	// Characters buffered before an export writes to the response
+	private static final int CSV_BUFFER_SIZE = 65536;
+
+	// Object mapper used to write streamed responses
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	// Writer for a single streamed order
+	private static final ObjectWriter ORDER_WRITER = MAPPER.writerFor(Order.class);
+	
 	// The business service that handles business logic for orders
 	OrdersBusinessInterface service;
 	
+	// The validator used to check each item of a bulk request
+	Validator validator;
+	
+	// The bounded executor that runs database work off the container threads
+	Executor executor;
+	
+	// How long a request may wait for the database before it fails with 503
+	long timeoutMillis = 10000;
+	
+	// The optional change feed of placed, edited and cancelled orders
+	OrderEventBus events;
+	
+	// How long a change feed stream stays open before the client must reconnect
+	long eventsTimeoutMillis = 1800000;
+	
+	// How many orders of a CSV import are placed per batch
+	int importBatchSize = 1000;
+	
+	// The optional store of responses to requests sent with an idempotency key
+	IdempotencyStore idempotency;
+	
 	/**
 	 * This method is used for setter injection of the business service
 	 * @param service the implementation of the OrdersBusinessInterface to leverage
@@ -43,125 +148,897 @@ public class OrderService
 	}
 	
 	/**
-	 * This method handles retrieving all orders
+	 * This method is used for setter injection of the validator
+	 * @param validator the validator used to check each item of a bulk request
+	 */
+	@Autowired
+	public void setValidator(Validator validator)
+	{
+		this.validator = validator;
+	}
+	
+	/**
+	 * This method is used for setter injection of the database executor
+	 * @param executor the bounded executor that runs database work
+	 */
+	@Autowired
+	public void setExecutor(@Qualifier("ordersExecutor") Executor executor)
+	{
+		this.executor = executor;
+	}
+	
+	/**
+	 * This method is used to set how long a request may wait for the database
+	 * @param timeoutMillis the request timeout in milliseconds
+	 */
+	@Value("${async.timeoutMillis:10000}")
+	public void setTimeoutMillis(long timeoutMillis)
+	{
+		this.timeoutMillis = timeoutMillis;
+	}
+	
+	/**
+	 * This method is used for setter injection of the change feed
+	 * @param events the bus that streams order changes
+	 */
+	@Autowired(required = false)
+	public void setEvents(OrderEventBus events)
+	{
+		this.events = events;
+	}
+	
+	/**
+	 * This method is used to set how long a change feed stream stays open
+	 * @param eventsTimeoutMillis the stream timeout in milliseconds
+	 */
+	@Value("${events.timeoutMillis:1800000}")
+	public void setEventsTimeoutMillis(long eventsTimeoutMillis)
+	{
+		this.eventsTimeoutMillis = eventsTimeoutMillis;
+	}
+	
+	/**
+	 * This method is used for setter injection of the idempotency store
+	 * @param idempotency the store that answers retried writes with their first response
+	 */
+	@Autowired(required = false)
+	public void setIdempotency(IdempotencyStore idempotency)
+	{
+		this.idempotency = idempotency;
+	}
+	
+	/**
+	 * This method is used to set how many orders of a CSV import are placed per batch
+	 * @param importBatchSize the number of orders per batch
+	 */
+	@Value("${csv.importBatchSize:1000}")
+	public void setImportBatchSize(int importBatchSize)
+	{
+		this.importBatchSize = importBatchSize;
+	}
+	
+	/**
+	 * This method handles retrieving all orders, or one page of orders when a page size is given
+	 * @param afterId the ID of the last order on the previous page (0 or omitted for the first page)
+	 * @param pageSize the maximum number of orders to return (omitted for all orders)
+	 * @param request the request, answered with 304 if its If-None-Match or If-Modified-Since is current
 	 * @return RestDto a DTO that includes the response data, response, code, and response message
 	 */
 	@GetMapping("/getOrders")
-	public RestDto<Order> handleGet()
+	public DeferredResult<RestDto<Order>> handleGet(@RequestParam(value = "afterId", defaultValue = "0") int afterId,
+			@RequestParam(value = "pageSize", required = false) Integer pageSize, WebRequest request)
 	{
-		// use try/catch to handle exceptions
-		try 
+		// answer 304 without reading the orders if the client's copy is current
+		if (notModified(request))
 		{
-			// instantiate a List of Orders
-			List<Order> orders = new ArrayList<Order>();
+			return null;
+		}
+		
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			// use try/catch to handle exceptions
+			try 
+			{
+				// instantiate a List of Orders
+				List<Order> orders = new ArrayList<Order>();
 			
-			// pass control to business layer to retrieve orders
-			orders = service.retrieveAll();
+				// if the client did not ask for a page
+				if (pageSize == null)
+				{
+					// pass control to business layer to retrieve orders
+					orders = service.retrieveAll();
+				}
 			
-			// return DTO containing the orders
-			return new RestDto<Order>(orders, 200, "OK");
-		}
+				// validate the page request
+				else if (afterId < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+				{
+					// return DTO informing the client of the failure
+					return new RestDto<Order>(null, 400, "Bad Request");
+				}
+			
+				else 
+				{
+					// pass control to business layer to retrieve the requested page
+					orders = service.retrievePage(afterId, pageSize);
+				}
+			
+				// return DTO containing the orders
+				return new RestDto<Order>(orders, 200, "OK");
+			}
 		
-		// handle exceptions here
-		catch (Exception e)
-		{			
-			// return DTO informing the client of the error
-			return new RestDto<Order>(null, 500, e.getMessage());
+			// handle exceptions here
+			catch (Exception e)
+			{			
+				// return DTO informing the client of the error
+				return new RestDto<Order>(null, 500, e.getMessage());
+			}
+		});
+	}
+	
+	/**
+	 * This method handles retrieving one order by ID
+	 * @param id the unique ID of the order
+	 * @param request the request, answered with 304 if its If-None-Match or If-Modified-Since is current
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/getOrder/{id}")
+	public DeferredResult<RestDto<Order>> handleGetById(@PathVariable("id") int id, WebRequest request)
+	{
+		// answer 304 without reading the order if the client's copy is current
+		if (notModified(request))
+		{
+			return null;
 		}
+		
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			// use try/catch to handle exceptions
+			try 
+			{
+				// pass control to business layer to retrieve the order
+				return found(service.retrieveById(id));
+			}
+		
+			// handle exceptions here
+			catch (Exception e)
+			{			
+				// return DTO informing the client of the error
+				return new RestDto<Order>(null, 500, "Internal error");
+			}
+		});
 	}
 	
 	/**
-	 * This method handles the placement of an order
-	 * @param order the Order being placed
+	 * This method handles retrieving one order by order number
+	 * @param orderNo the unique order number
+	 * @param request the request, answered with 304 if its If-None-Match or If-Modified-Since is current
 	 * @return RestDto a DTO that includes the response data, response, code, and response message
 	 */
-	@PostMapping("/createOrder")
-	public RestDto<Order> handlePlace(@Valid @RequestBody Order order, BindingResult bindingResult)
+	@GetMapping("/getOrderByNo/{orderNo:.+}")
+	public DeferredResult<RestDto<Order>> handleGetByOrderNo(@PathVariable("orderNo") String orderNo, WebRequest request)
 	{
-		// use try/catch to handle exceptions
-		try 
-		{			
-			// validate parameter
-			if (bindingResult.hasErrors())
+		// answer 304 without reading the order if the client's copy is current
+		if (notModified(request))
+		{
+			return null;
+		}
+		
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			// use try/catch to handle exceptions
+			try 
 			{
-				// return DTO informing the user of the failure
-				return new RestDto<Order>(null, 400, "Bad Request");
+				// pass control to business layer to retrieve the order
+				return found(service.retrieveByOrderNo(orderNo));
 			}
-			
-			// if the order was successfully placed
-			if (service.place(order))
+		
+			// handle exceptions here
+			catch (Exception e)
+			{			
+				// return DTO informing the client of the error
+				return new RestDto<Order>(null, 500, "Internal error");
+			}
+		});
+	}
+	
+	/**
+	 * This method handles retrieving the orders that match a filter, filtered and sorted by the database
+	 * @param filter the optional product name, price range and quantity range the orders must match
+	 * @param bindingResult the result of binding and validating the filter
+	 * @param sort the field to sort by: ID, ORDER_NO, PRODUCT_NAME, PRICE, QUANTITY or TOTAL
+	 * @param descending true to sort from the largest value down
+	 * @param limit the maximum number of orders to return
+	 * @param request the request, answered with 304 if its If-None-Match or If-Modified-Since is current
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/findOrders")
+	public DeferredResult<RestDto<Order>> handleFind(@Valid OrderFilter filter, BindingResult bindingResult,
+			@RequestParam(value = "sort", defaultValue = "ID") String sort,
+			@RequestParam(value = "desc", defaultValue = "false") boolean descending,
+			@RequestParam(value = "limit", defaultValue = "100") int limit, WebRequest request)
+	{
+		// answer 304 without querying the orders if the client's copy is current
+		if (notModified(request))
+		{
+			return null;
+		}
+		
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			// use try/catch to handle exceptions
+			try 
 			{
-				// instantiate an ArrayList of Orders to return as response data
-				ArrayList<Order> data= new ArrayList<Order>();
-				// add the order that was placed to the response data
-				data.add(order);
+				// validate the query
+				Order.Sort by = parse(Order.Sort.class, sort);
+				if (bindingResult.hasErrors() || !filter.hasValidRanges() || by == null || limit < 1 || limit > MAX_PAGE_SIZE)
+				{
+					// return DTO informing the client of the failure
+					return new RestDto<Order>(null, 400, "Bad Request");
+				}
 				
-				// return DTO indicating the request succeeded 
-				return new RestDto<Order>(data, 200, "OK");
+				// pass control to business layer to retrieve the matching orders
+				return new RestDto<Order>(service.retrieveMatching(filter, by, descending, limit), 200, "OK");
 			}
-			
-			// if the request failed
-			else 
-			{	
-				// return DTO informing the user of the failure
+		
+			// handle exceptions here
+			catch (Exception e)
+			{			
+				// return DTO informing the client of the error
 				return new RestDto<Order>(null, 500, "Internal error");
 			}
+		});
+	}
+	
+	/**
+	 * This method handles totalling the orders that match a filter for each product, grouped and sorted by the database.
+	 * The defaults return the top products by revenue
+	 * @param filter the optional product name, price range and quantity range the orders must match
+	 * @param bindingResult the result of binding and validating the filter
+	 * @param sort the field to sort by: PRODUCT_NAME, ORDERS, QUANTITY or REVENUE
+	 * @param descending true to sort from the largest value down
+	 * @param limit the maximum number of products to return
+	 * @param request the request, answered with 304 if its If-None-Match or If-Modified-Since is current
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@GetMapping("/getProductSummary")
+	public DeferredResult<RestDto<ProductSummary>> handleSummary(@Valid OrderFilter filter, BindingResult bindingResult,
+			@RequestParam(value = "sort", defaultValue = "REVENUE") String sort,
+			@RequestParam(value = "desc", defaultValue = "true") boolean descending,
+			@RequestParam(value = "limit", defaultValue = "100") int limit, WebRequest request)
+	{
+		// answer 304 without totalling the orders if the client's copy is current
+		if (notModified(request))
+		{
+			return null;
 		}
 		
-		// handle exceptions here
-		catch (Exception e)
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			// use try/catch to handle exceptions
+			try 
+			{
+				// validate the query
+				ProductSummary.Sort by = parse(ProductSummary.Sort.class, sort);
+				if (bindingResult.hasErrors() || !filter.hasValidRanges() || by == null || limit < 1 || limit > MAX_PAGE_SIZE)
+				{
+					// return DTO informing the client of the failure
+					return new RestDto<ProductSummary>(null, 400, "Bad Request");
+				}
+				
+				// pass control to business layer to total the orders
+				return new RestDto<ProductSummary>(service.summarizeByProduct(filter, by, descending, limit), 200, "OK");
+			}
+		
+			// handle exceptions here
+			catch (Exception e)
+			{			
+				// return DTO informing the client of the error
+				return new RestDto<ProductSummary>(null, 500, "Internal error");
+			}
+		});
+	}
+	
+	/**
+	 * This method checks a conditional read against the version of the orders and sets the ETag and Last-Modified
+	 * headers. The version is stored in the database, so every node and every restart tags the same orders alike.
+	 * It is read before the orders so a response is never older than its ETag. Last-Modified only has whole
+	 * seconds, so it is left out while the second of the last change is still running: a client holding it could
+	 * otherwise miss a later change in the same second
+	 * @param request the request, with any If-None-Match or If-Modified-Since header
+	 * @return true if the client's copy is current and a 304 has been set
+	 */
+	private boolean notModified(WebRequest request)
+	{
+		// weak, since the same version is served in more than one format and encoding
+		TableVersion version = service.retrieveVersion();
+		String etag = "W/\"" + Long.toString(version.getVersion(), 36) + "\"";
+		
+		// validate by ETag alone until the second of the last change has passed, or if its time is not known
+		long lastModified = version.getLastModified();
+		if (lastModified <= 0 || lastModified / 1000 >= System.currentTimeMillis() / 1000)
+		{
+			lastModified = -1;
+		}
+		return request.checkNotModified(etag, lastModified);
+	}
+	
+	/**
+	 * This method reads a sort field from a request parameter, ignoring case
+	 * @param type the enum of sort fields
+	 * @param value the request parameter
+	 * @return the sort field, or null if there is no field with that name
+	 */
+	private static <E extends Enum<E>> E parse(Class<E> type, String value)
+	{
+		// use try/catch to handle unknown fields
+		try 
+		{
+			return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException e)
 		{
-			// return DTO informing the user of the failure
-			return new RestDto<Order>(null, 500, "Internal error");
+			return null;
+		}
+	}
+	
+	/**
+	 * This method builds the response for a single order lookup
+	 * @param order the order found, or null
+	 * @return RestDto a DTO containing the order, or informing the client it was not found
+	 */
+	private RestDto<Order> found(Order order)
+	{
+		// IF the order does not exist
+		if (order == null)
+		{
+			// return DTO indicating the order wasn't found
+			return new RestDto<Order>(null, 404, "Not found");
 		}
 		
+		// instantiate response data
+		ArrayList<Order> data = new ArrayList<Order>();
+		// add the order to the response data
+		data.add(order);
+		
+		// return DTO containing the order
+		return new RestDto<Order>(data, 200, "OK");
 	}
 	
 	/**
-	 * This method handles changes to an order
-	 * @param order the updated order
-	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 * This method handles retrieving all orders by writing each order to the response as it is read from the database.
+	 * The stream is written on the stream executor, a few threads apart from the other requests, so long streams never
+	 * hold up other reads and a busy stream executor answers with 503
+	 * @param response the response the DTO is streamed to
+	 * @return the body, written on the stream executor
 	 */
-	@PostMapping("/updateOrder")
-	public RestDto<Order> handleEdit(@Valid @RequestBody Order order, BindingResult bindingResult)
+	@GetMapping(value = "/getOrders", params = "stream=true")
+	public StreamingResponseBody handleStream(HttpServletResponse response)
+	{
+		// describe the streamed DTO
+		response.setContentType("application/json;charset=UTF-8");
+		
+		// write the orders under the read routing of the request
+		final ReadRoutingContext context = ReadRoutingContext.current();
+		return out -> {
+			ReadRoutingContext previous = ReadRoutingContext.bind(context);
+			try 
+			{
+				writeStream(out);
+			}
+			finally 
+			{
+				ReadRoutingContext.bind(previous);
+			}
+		};
+	}
+	
+	/**
+	 * This method writes the DTO of all orders, one order at a time
+	 * @param out the response body
+	 * @throws IOException if the response cannot be written
+	 */
+	private void writeStream(OutputStream out) throws IOException
 	{
+		// open a generator over the response so orders are written without being collected first
+		JsonGenerator generator = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+		
+		// write the opening of the DTO and its data array
+		generator.writeStartObject();
+		generator.writeArrayFieldStart("data");
+		
+		// default to success
+		int code = 200;
+		String message = "OK";
+		
 		// use try/catch to handle exceptions
 		try 
 		{
-			// validate parameter
-			if (bindingResult.hasErrors())
+			// pass control to business layer to stream the orders into the response
+			service.streamAll(order -> {
+				try 
+				{
+					ORDER_WRITER.writeValue(generator, order);
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		
+		// the client went away, so there is nobody left to write to
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		
+		// handle exceptions here
+		catch (Exception e)
+		{
+			// report the failure in the DTO trailer since the data may already be on the wire
+			code = 500;
+			message = "Internal error";
+		}
+		
+		// close the data array and write the rest of the DTO
+		generator.writeEndArray();
+		generator.writeNumberField("code", code);
+		generator.writeStringField("message", message);
+		generator.writeEndObject();
+		generator.close();
+	}
+
+	/**
+	 * This method handles exporting all orders as CSV, writing each order to the response as it is read from the
+	 * database cursor. Like the streamed DTO, the download is written on the stream executor, so a few exports at a
+	 * time hold no container threads and a busy stream executor answers with 503. A failure part way aborts the
+	 * response, so a truncated download is not mistaken for a whole one
+	 * @param response the response the CSV is streamed to
+	 * @return the body, written on the stream executor
+	 */
+	@GetMapping(value = "/exportOrders", produces = "text/csv")
+	public StreamingResponseBody handleExport(HttpServletResponse response)
+	{
+		// describe the download
+		response.setContentType("text/csv;charset=UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"orders.csv\"");
+		
+		// write the orders under the read routing of the request
+		final ReadRoutingContext context = ReadRoutingContext.current();
+		return out -> {
+			ReadRoutingContext previous = ReadRoutingContext.bind(context);
+			try 
 			{
-				// return DTO informing the user of the failure
-				return new RestDto<Order>(null, 400, "Bad Request");
+				writeExport(out);
 			}
-						
-			// pass control to business layer to update order
-			if (service.edit(order))
+			finally 
 			{
-				// instantiate response data
-				ArrayList<Order> data= new ArrayList<Order>();
-				// add updated order to response data
-				data.add(order);
-				
-				// return DTO indicating request succeed
-				return new RestDto<Order>(data, 200, "OK");
+				ReadRoutingContext.bind(previous);
 			}
+		};
+	}
+	
+	/**
+	 * This method writes all orders as CSV, one order at a time
+	 * @param out the response body
+	 * @throws IOException if the response cannot be written
+	 */
+	private void writeExport(OutputStream out) throws IOException
+	{
+		// write through a buffer so rows reach the container in large writes
+		long start = System.nanoTime();
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+		CsvWriter csv = new CsvWriter(writer);
+		OrderCsv.writeHeader(csv);
+		
+		// use try/catch to handle the client going away
+		int rows;
+		try
+		{
+			// pass control to business layer to stream the orders into the response
+			rows = service.streamAll(order -> {
+				try
+				{
+					OrderCsv.write(csv, order);
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		writer.flush();
+		
+		// report the throughput
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		logger.info("Exported {} orders as CSV in {} ms ({} rows/s)", rows, millis, rows * 1000L / millis);
+	}
+	
+	/**
+	 * This method handles importing orders from CSV. The body is parsed one record at a time and placed in batches,
+	 * so a file is imported in the memory of one batch. The first record is a header naming the orderNo,
+	 * productName, price and quantity columns; other columns are ignored. Invalid records are skipped and reported
+	 * by line number. An import holds a container thread, so like a bulk request it may hold at most MAX_BULK_SIZE
+	 * orders; the import stops with 413 at the first record past that, keeping the orders placed before it
+	 * @param request the request whose body is the CSV
+	 * @return RestDto a DTO that includes the counts, rows per second, and the first errors
+	 * @throws IOException if the request cannot be read
+	 */
+	@PostMapping(value = "/importOrders", consumes = "text/csv")
+	public RestDto<ImportResult> handleImport(HttpServletRequest request) throws IOException
+	{
+		// read the body in the charset the client sent, UTF-8 if it did not say
+		String charset = request.getCharacterEncoding() != null ? request.getCharacterEncoding() : StandardCharsets.UTF_8.name();
+		CsvReader reader = new CsvReader(new InputStreamReader(request.getInputStream(), charset), MAX_CSV_FIELD_LENGTH);
+		
+		// initialize the counters and the batch being filled
+		long start = System.nanoTime();
+		long rows = 0;
+		long imported = 0;
+		long rejected = 0;
+		long failed = 0;
+		List<ItemResult> errors = new ArrayList<ItemResult>();
+		List<Order> batch = new ArrayList<Order>(importBatchSize);
+		long[] lines = new long[importBatchSize];
+		int code = 200;
+		String message = "OK";
+		
+		// use try/catch to handle malformed input and exceptions
+		try
+		{
+			// map the columns named by the header
+			String[] header = reader.next();
+			if (header == null)
+			{
+				// return DTO informing the client of the failure
+				return new RestDto<ImportResult>(null, 400, "Bad Request");
+			}
+			OrderCsv columns = OrderCsv.forHeader(header);
 			
-			// if the update failed
-			else 
+			// read each record and place the orders a batch at a time
+			for (String[] record = reader.next(); record != null; record = reader.next())
 			{
-				// return DTO indicating the order wasn't found
-				return new RestDto<Order>(null, 404, "Not found");
+				// stop at the first record past the size of a bulk request
+				if (rows == MAX_BULK_SIZE)
+				{
+					code = 413;
+					message = "Payload Too Large";
+					break;
+				}
+				rows++;
+				long line = reader.getLine();
+				
+				// validate the order, skipping the record if it is not one
+				Order order;
+				try
+				{
+					order = columns.read(record);
+				}
+				catch (IllegalArgumentException e)
+				{
+					order = null;
+				}
+				BindingResult bindingResult = new BeanPropertyBindingResult(order, "order");
+				if (order != null)
+				{
+					validator.validate(order, bindingResult);
+				}
+				if (order == null || bindingResult.hasErrors())
+				{
+					rejected++;
+					error(errors, new ItemResult(line, 400, "Bad Request"));
+					continue;
+				}
+				lines[batch.size()] = line;
+				batch.add(order);
+				
+				// place the batch once it is full
+				if (batch.size() == importBatchSize)
+				{
+					int placed = placeBatch(batch, lines, errors);
+					imported += placed;
+					failed += batch.size() - placed;
+					batch.clear();
+				}
 			}
 		}
 		
+		// handle malformed CSV here; the orders before the malformed record are still placed
+		catch (CsvFormatException e)
+		{
+			code = 400;
+			message = e.getMessage();
+		}
+		
+		// handle a full ingestion queue here
+		catch (RejectedExecutionException e)
+		{
+			code = 503;
+			message = "Service Unavailable";
+		}
+		
 		// handle exceptions here
-		catch (Exception e)
+		catch (RuntimeException e)
+		{
+			code = 500;
+			message = "Internal error";
+		}
+		
+		// the batch being placed when the import failed did not make it
+		if (code >= 500)
+		{
+			failed += batch.size();
+		}
+		
+		// otherwise place the last partial batch
+		else if (!batch.isEmpty())
 		{
-			// return DTO indicating there was an internal error
-			return new RestDto<Order>(null, 500, "Internal error");
+			// use try/catch to handle exceptions
+			try
+			{
+				int placed = placeBatch(batch, lines, errors);
+				imported += placed;
+				failed += batch.size() - placed;
+			}
+			catch (RuntimeException e)
+			{
+				failed += batch.size();
+				code = e instanceof RejectedExecutionException ? 503 : 500;
+				message = code == 503 ? "Service Unavailable" : "Internal error";
+			}
 		}
 		
+		// report the counts and the throughput
+		long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+		ImportResult result = new ImportResult(rows, imported, rejected, failed, millis, errors);
+		logger.info("Imported {} of {} CSV rows in {} ms ({} rows/s)", imported, rows, millis, result.getRowsPerSecond());
+		if (code == 200 && (rejected > 0 || failed > 0))
+		{
+			code = 207;
+			message = "Multi-Status";
+		}
+		return new RestDto<ImportResult>(Collections.singletonList(result), code, message);
+	}
+	
+	/**
+	 * This method places one batch of an import
+	 * @param batch the valid orders of the batch
+	 * @param lines the line of each order in the CSV
+	 * @param errors the errors of the import, to which failed orders are added
+	 * @return the number of orders placed
+	 */
+	private int placeBatch(List<Order> batch, long[] lines, List<ItemResult> errors)
+	{
+		// pass control to business layer to place the orders
+		boolean[] placed = service.placeAll(batch);
+		int count = 0;
+		for (int i = 0; i < placed.length; i++)
+		{
+			if (placed[i])
+			{
+				count++;
+			}
+			else
+			{
+				error(errors, new ItemResult(lines[i], 500, "Internal error"));
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * This method records an error of an import, keeping only the first few so the response stays small
+	 * @param errors the errors so far
+	 * @param error the error to add
+	 */
+	private static void error(List<ItemResult> errors, ItemResult error)
+	{
+		if (errors.size() < MAX_IMPORT_ERRORS)
+		{
+			errors.add(error);
+		}
+	}
+	
+	/**
+	 * This method handles the placement of an order
+	 * @param order the Order being placed
+	 * @param idempotencyKey the optional key that makes a retried request return the first response instead of placing the order again
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@PostMapping("/createOrder")
+	public DeferredResult<RestDto<Order>> handlePlace(@Valid @RequestBody Order order, BindingResult bindingResult,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
+	{
+		// run the request on the database executor so the container thread is released, once per idempotency key
+		return submitOnce("createOrder", idempotencyKey, order, () -> {
+			// use try/catch to handle exceptions
+			try 
+			{			
+				// validate parameter
+				if (bindingResult.hasErrors())
+				{
+					// return DTO informing the user of the failure
+					return new RestDto<Order>(null, 400, "Bad Request");
+				}
+			
+				// if the order was successfully placed
+				if (service.place(order))
+				{
+					// instantiate an ArrayList of Orders to return as response data
+					ArrayList<Order> data= new ArrayList<Order>();
+					// add the order that was placed to the response data
+					data.add(order);
+				
+					// return DTO indicating the request succeeded, or that it was accepted if the order is written behind
+					return service.isWriteBehind() ? new RestDto<Order>(data, 202, "Accepted") : new RestDto<Order>(data, 200, "OK");
+				}
+			
+				// if the request failed
+				else 
+				{	
+					// return DTO informing the user of the failure
+					return new RestDto<Order>(null, 500, "Internal error");
+				}
+			}
+
+			// handle a full ingestion queue here
+			catch (RejectedExecutionException e)
+			{
+				// return DTO informing the client to back off
+				return new RestDto<Order>(null, 503, "Service Unavailable");
+			}
+
+			// handle exceptions here
+			catch (Exception e)
+			{
+				// return DTO informing the user of the failure
+				return new RestDto<Order>(null, 500, "Internal error");
+			}
+		});
+	}
+
+	/**
+	 * This method handles the placement of many orders in one request
+	 * @param orders the Orders being placed
+	 * @param idempotencyKey the optional key that makes a retried request return the first response instead of placing the orders again
+	 * @return RestDto a DTO that includes a result for each order, response code, and response message
+	 */
+	@PostMapping("/createOrders")
+	public DeferredResult<RestDto<ItemResult>> handlePlaceAll(@RequestBody List<Order> orders, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
+	{
+		// run the request on the database executor so the container thread is released, once per idempotency key
+		return submitOnce("createOrders", idempotencyKey, orders, () -> {
+			// use try/catch to handle exceptions
+			try 
+			{
+				// validate the size of the request
+				if (orders == null || orders.isEmpty() || orders.size() > MAX_BULK_SIZE)
+				{
+					// return DTO informing the user of the failure
+					return new RestDto<ItemResult>(null, 400, "Bad Request");
+				}
+			
+				// initialize a result for each order and the list of orders that pass validation
+				ItemResult[] results = new ItemResult[orders.size()];
+				List<Order> valid = new ArrayList<Order>(orders.size());
+				int[] positions = new int[orders.size()];
+			
+				// validate each order
+				for (int i = 0; i < orders.size(); i++)
+				{
+					Order order = orders.get(i);
+					BindingResult bindingResult = new BeanPropertyBindingResult(order, "order");
+					if (order != null)
+					{
+						validator.validate(order, bindingResult);
+					}
+				
+					// if the order is invalid record the failure, otherwise queue it for placement
+					if (order == null || bindingResult.hasErrors())
+					{
+						results[i] = new ItemResult(i, 400, "Bad Request");
+					}
+					else 
+					{
+						positions[valid.size()] = i;
+						valid.add(order);
+					}
+				}
+			
+				// pass control to business layer to place the valid orders
+				boolean failed = valid.size() < orders.size();
+				boolean[] placed = valid.isEmpty() ? new boolean[0] : service.placeAll(valid);
+				boolean accepted = service.isWriteBehind();
+				for (int i = 0; i < placed.length; i++)
+				{
+					results[positions[i]] = !placed[i] ? new ItemResult(positions[i], 500, "Internal error")
+							: accepted ? new ItemResult(positions[i], 202, "Accepted") : new ItemResult(positions[i], 200, "OK");
+					failed |= !placed[i];
+				}
+			
+				// return DTO with the result of each order
+				return failed ? new RestDto<ItemResult>(Arrays.asList(results), 207, "Multi-Status")
+						: accepted ? new RestDto<ItemResult>(Arrays.asList(results), 202, "Accepted") : new RestDto<ItemResult>(Arrays.asList(results), 200, "OK");
+			}
+			
+			// handle a full ingestion queue here
+			catch (RejectedExecutionException e)
+			{
+				// return DTO informing the client to back off
+				return new RestDto<ItemResult>(null, 503, "Service Unavailable");
+			}
+		
+			// handle exceptions here
+			catch (Exception e)
+			{
+				// return DTO informing the user of the failure
+				return new RestDto<ItemResult>(null, 500, "Internal error");
+			}
+		});
+	}
+	
+	/**
+	 * This method handles changes to an order. The update only applies if the order is still at the version the client
+	 * read; otherwise the response is a 409 carrying the current order
+	 * @param order the updated order, with the version it was read at
+	 * @param idempotencyKey the optional key that makes a retried request return the first response instead of a conflict
+	 * @return RestDto a DTO that includes the response data, response, code, and response message
+	 */
+	@PostMapping("/updateOrder")
+	public DeferredResult<RestDto<Order>> handleEdit(@Valid @RequestBody Order order, BindingResult bindingResult,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
+	{
+		// run the request on the database executor so the container thread is released, once per idempotency key
+		return submitOnce("updateOrder", idempotencyKey, order, () -> {
+			// use try/catch to handle exceptions
+			try 
+			{
+				// validate parameter
+				if (bindingResult.hasErrors())
+				{
+					// return DTO informing the user of the failure
+					return new RestDto<Order>(null, 400, "Bad Request");
+				}
+						
+				// pass control to business layer to update order
+				if (service.edit(order))
+				{
+					// instantiate response data
+					ArrayList<Order> data= new ArrayList<Order>();
+					// add updated order to response data
+					data.add(order);
+				
+					// return DTO indicating request succeed
+					return new RestDto<Order>(data, 200, "OK");
+				}
+			
+				// if the update failed
+				else 
+				{
+					// return DTO indicating the order wasn't found
+					return new RestDto<Order>(null, 404, "Not found");
+				}
+			}
+			
+			// handle a concurrent change here
+			catch (ConcurrentUpdateException e)
+			{
+				// return DTO with the current order so the client can reapply its change and retry
+				Order current = service.retrieveById(order.getId());
+				return new RestDto<Order>(current == null ? null : Arrays.asList(current), 409, "Conflict");
+			}
+		
+			// handle exceptions here
+			catch (Exception e)
+			{
+				// return DTO indicating there was an internal error
+				return new RestDto<Order>(null, 500, "Internal error");
+			}
+		});
 	}
 	
 	/**
@@ -170,39 +1047,422 @@ public class OrderService
 	 * @return RestDto a DTO that includes the response data, response, code, and response message
 	 */
 	@GetMapping("/deleteOrder/{id}")
-	public RestDto<Order> handleCancel(@PathVariable("id") int id)
+	public DeferredResult<RestDto<Order>> handleCancel(@PathVariable("id") int id)
 	{
-		try
-		{			
-			// instantiate order from passed ID
-			Order order = new Order(id, null, null, 0, 0);
-			// pass control to business layer to delete order
-			if (service.cancel(order))
-			{
-				// initialize response data
-				ArrayList<Order> data= new ArrayList<Order>();
-				// add the cancelled order to the response data
-				data.add(order);
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			try
+			{			
+				// instantiate order from passed ID
+				Order order = new Order(id, null, null, 0, 0);
+				// pass control to business layer to delete order
+				if (service.cancel(order))
+				{
+					// initialize response data
+					ArrayList<Order> data= new ArrayList<Order>();
+					// add the cancelled order to the response data
+					data.add(order);
 				
-				// return a DTO indicating the request succeeded
-				return new RestDto<Order>(data, 200, "OK");
-			}
+					// return a DTO indicating the request succeeded
+					return new RestDto<Order>(data, 200, "OK");
+				}
 			
-			// if cancellation fails
-			else 
-			{
+				// if cancellation fails
+				else 
+				{
+					// return a DTO indicating the order wasn't found
+					return new RestDto<Order>(null, 500, "Internal error");
+				}
+			}
+		
+			// handle exceptions here
+			catch (Exception e)
+			{			
 				// return a DTO indicating the order wasn't found
 				return new RestDto<Order>(null, 500, "Internal error");
 			}
+		});
+	}
+	
+	/**
+	 * This method handles changes to many orders in one request. Each order only changes if it is still at the
+	 * version the client read
+	 * @param orders the updated orders, each with the version it was read at
+	 * @param idempotencyKey the optional key that makes a retried request return the first response instead of conflicts
+	 * @return RestDto a DTO that includes a result for each order, response code, and response message
+	 */
+	@PostMapping("/updateOrders")
+	public DeferredResult<RestDto<ItemResult>> handleEditAll(@RequestBody List<Order> orders, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
+	{
+		// run the request on the database executor so the container thread is released, once per idempotency key
+		return submitOnce("updateOrders", idempotencyKey, orders, () -> {
+			// use try/catch to handle exceptions
+			try
+			{
+				// validate the size of the request
+				if (orders == null || orders.isEmpty() || orders.size() > MAX_BULK_SIZE)
+				{
+					// return DTO informing the user of the failure
+					return new RestDto<ItemResult>(null, 400, "Bad Request");
+				}
+
+				// initialize a result for each order and the list of orders that pass validation
+				ItemResult[] results = new ItemResult[orders.size()];
+				List<Order> valid = new ArrayList<Order>(orders.size());
+				int[] positions = new int[orders.size()];
+
+				// validate each order
+				for (int i = 0; i < orders.size(); i++)
+				{
+					Order order = orders.get(i);
+					BindingResult bindingResult = new BeanPropertyBindingResult(order, "order");
+					if (order != null)
+					{
+						validator.validate(order, bindingResult);
+					}
+
+					// if the order is invalid record the failure, otherwise queue it for the update
+					if (order == null || bindingResult.hasErrors())
+					{
+						results[i] = new ItemResult(i, order == null ? null : order.getId(), 400, "Bad Request");
+					}
+					else
+					{
+						positions[valid.size()] = i;
+						valid.add(order);
+					}
+				}
+
+				// pass control to business layer to update the valid orders
+				WriteOutcome[] outcomes = valid.isEmpty() ? new WriteOutcome[0] : service.editAll(valid);
+				for (int i = 0; i < outcomes.length; i++)
+				{
+					results[positions[i]] = result(positions[i], valid.get(i).getId(), outcomes[i]);
+				}
+
+				// return DTO with the result of each order
+				return results(results);
+			}
+
+			// handle exceptions here
+			catch (Exception e)
+			{
+				// return DTO informing the user of the failure
+				return new RestDto<ItemResult>(null, 500, "Internal error");
+			}
+		});
+	}
+
+	/**
+	 * This method handles the cancellation of many orders in one request
+	 * @param ids the unique IDs of the orders being cancelled
+	 * @return RestDto a DTO that includes a result for each ID, response code, and response message
+	 */
+	@PostMapping("/deleteOrders")
+	public DeferredResult<RestDto<ItemResult>> handleCancelAll(@RequestBody List<Integer> ids)
+	{
+		// run the request on the database executor so the container thread is released
+		return submit(() -> {
+			// use try/catch to handle exceptions
+			try
+			{
+				// validate the size of the request
+				if (ids == null || ids.isEmpty() || ids.size() > MAX_BULK_SIZE)
+				{
+					// return DTO informing the user of the failure
+					return new RestDto<ItemResult>(null, 400, "Bad Request");
+				}
+
+				// initialize a result for each ID and the list of orders to cancel
+				ItemResult[] results = new ItemResult[ids.size()];
+				List<Order> orders = new ArrayList<Order>(ids.size());
+				int[] positions = new int[ids.size()];
+				for (int i = 0; i < ids.size(); i++)
+				{
+					// if the ID is missing record the failure, otherwise queue it for the cancellation
+					if (ids.get(i) == null)
+					{
+						results[i] = new ItemResult(i, 400, "Bad Request");
+					}
+					else
+					{
+						positions[orders.size()] = i;
+						orders.add(new Order(ids.get(i), null, null, 0, 0));
+					}
+				}
+
+				// pass control to business layer to cancel the orders
+				WriteOutcome[] outcomes = orders.isEmpty() ? new WriteOutcome[0] : service.cancelAll(orders);
+				for (int i = 0; i < outcomes.length; i++)
+				{
+					results[positions[i]] = result(positions[i], orders.get(i).getId(), outcomes[i]);
+				}
+
+				// return DTO with the result of each ID
+				return results(results);
+			}
+
+			// handle exceptions here
+			catch (Exception e)
+			{
+				// return DTO informing the user of the failure
+				return new RestDto<ItemResult>(null, 500, "Internal error");
+			}
+		});
+	}
+
+	/**
+	 * This method handles subscriptions to the change feed, a Server-Sent Events stream of placed, edited and
+	 * cancelled orders. A client that reconnects sends the ID of the last event it received, as Last-Event-ID or
+	 * the after parameter, and the stream resumes after it. A "reset" event means those events are no longer kept
+	 * and a "dropped" event counts events lost because the client read too slowly
+	 * @param lastEventId the ID of the last event received, sent by EventSource clients on reconnect
+	 * @param after the ID of the last event received, for clients that cannot set headers
+	 * @param buffer how many events may wait for the client before the policy applies
+	 * @param policy drop_oldest, drop_newest or disconnect
+	 * @return the event stream
+	 */
+	@GetMapping(value = "/orderEvents", produces = "text/event-stream")
+	public ResponseEntity<SseEmitter> handleEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+			@RequestParam(value = "after", required = false) Long after, @RequestParam(value = "buffer", defaultValue = "1000") int buffer,
+			@RequestParam(value = "policy", defaultValue = "drop_oldest") String policy)
+	{
+		// IF there is no change feed
+		if (events == null)
+		{
+			return ResponseEntity.notFound().build();
 		}
 		
-		// handle exceptions here
-		catch (Exception e)
-		{			
-			// return a DTO indicating the order wasn't found
-			return new RestDto<Order>(null, 500, "Internal error");
+		// validate the subscription
+		DropPolicy dropPolicy = parse(DropPolicy.class, policy.replace('-', '_'));
+		Long resumeAfter = after;
+		try 
+		{
+			if (lastEventId != null && !lastEventId.trim().isEmpty())
+			{
+				resumeAfter = Long.valueOf(lastEventId.trim());
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			dropPolicy = null;
+		}
+		if (dropPolicy == null || buffer < 1 || buffer > MAX_EVENT_BUFFER)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		
+		// use try/catch to handle too many subscribers
+		SseEmitter emitter = new SseEmitter(eventsTimeoutMillis);
+		try 
+		{
+			events.subscribe(emitter, resumeAfter, buffer, dropPolicy);
+		}
+		catch (RejectedExecutionException e)
+		{
+			// inform the client to come back later
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+		}
+		return ResponseEntity.ok().header("Cache-Control", "no-cache").body(emitter);
+	}
+
+	/**
+	 * This method reports the outcome of one item of a bulk update or cancellation
+	 * @param index the position of the item in the request
+	 * @param id the ID of the order
+	 * @param outcome what happened to the order
+	 * @return the result of the item
+	 */
+	private static ItemResult result(int index, int id, WriteOutcome outcome)
+	{
+		switch (outcome)
+		{
+			case DONE:
+				return new ItemResult(index, id, 200, "OK");
+			case NOT_FOUND:
+				return new ItemResult(index, id, 404, "Not found");
+			case CONFLICT:
+				return new ItemResult(index, id, 409, "Conflict");
+			default:
+				return new ItemResult(index, id, 500, "Internal error");
+		}
+	}
+
+	/**
+	 * This method wraps the item results of a bulk request, which succeeded only if every item did
+	 * @param results the result of each item
+	 * @return RestDto a DTO that includes the results, response code, and response message
+	 */
+	private static RestDto<ItemResult> results(ItemResult[] results)
+	{
+		for (ItemResult result : results)
+		{
+			if (result.getCode() != 200)
+			{
+				return new RestDto<ItemResult>(Arrays.asList(results), 207, "Multi-Status");
+			}
+		}
+		return new RestDto<ItemResult>(Arrays.asList(results), 200, "OK");
+	}
+
+	/**
+	 * This method runs a write request on the database executor at most once per idempotency key. The first request
+	 * with a key does the work and its response is stored; a retry with the key gets the stored response without
+	 * touching the database, and a retry that arrives while the first request is still working waits for its response.
+	 * A response with a 5xx code is not stored, so the client can retry it. Without a key the request simply runs
+	 * @param scope the endpoint, so the same key sent to different endpoints does not collide
+	 * @param key the client's idempotency key, or null
+	 * @param body the request body, which a retry must repeat exactly
+	 * @param work the request work
+	 * @return a deferred result completed with the DTO produced by the work or stored for the key
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> DeferredResult<RestDto<T>> submitOnce(String scope, String key, Object body, final Supplier<RestDto<T>> work)
+	{
+		// IF there is no key or no store, run the request as usual
+		if (key == null || idempotency == null)
+		{
+			return submit(work);
+		}
+		
+		// validate the key
+		if (key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH)
+		{
+			return completed(new RestDto<T>(null, 400, "Bad Request"));
+		}
+		
+		// claim the key, or find the request that already holds it
+		final IdempotencyStore.Claim claim;
+		try 
+		{
+			claim = idempotency.claim(scope + ":" + key, fingerprint(body));
+		}
+		
+		// handle a key reused for a different request here
+		catch (IdempotencyKeyReusedException e)
+		{
+			return completed(new RestDto<T>(null, 422, "Unprocessable Entity"));
 		}
 		
+		// IF another request holds the key, answer with its response once it has one
+		if (!claim.isOwner())
+		{
+			final DeferredResult<RestDto<T>> result = new DeferredResult<RestDto<T>>(timeoutMillis, new RestDto<T>(null, 503, "Service Unavailable"));
+			claim.getResponse().thenAccept(response -> result.setResult((RestDto<T>) response));
+			return result;
+		}
+		
+		// run the work, keeping its response for retries unless it failed in a way a retry may not
+		final AtomicBoolean started = new AtomicBoolean();
+		DeferredResult<RestDto<T>> result = submit(() -> {
+			// IF the request already ended without the work, the claim is released
+			if (!started.compareAndSet(false, true))
+			{
+				return new RestDto<T>(null, 503, "Service Unavailable");
+			}
+			RestDto<T> response = null;
+			try 
+			{
+				response = work.get();
+				return response;
+			}
+			finally 
+			{
+				if (response != null && response.getCode() < 500)
+				{
+					idempotency.complete(claim, response);
+				}
+				else 
+				{
+					idempotency.release(claim, response != null ? response : new RestDto<T>(null, 500, "Internal error"));
+				}
+			}
+		});
+		
+		// IF the request ends before the work starts, because the executor was full or the request timed out
+		// in the queue, release the claim so the work can be retried
+		result.onCompletion(() -> {
+			if (started.compareAndSet(false, true))
+			{
+				idempotency.release(claim, new RestDto<T>(null, 503, "Service Unavailable"));
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * This method fingerprints a request body, so a retry can be told apart from a different request with the same key
+	 * @param body the request body
+	 * @return a digest of the body's JSON
+	 */
+	private static String fingerprint(Object body)
+	{
+		try 
+		{
+			return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(MAPPER.writeValueAsBytes(body)));
+		}
+		catch (JsonProcessingException | NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * This method answers a request without running any work
+	 * @param response the DTO to answer with
+	 * @return a deferred result already completed with the DTO
+	 */
+	private static <T> DeferredResult<RestDto<T>> completed(RestDto<T> response)
+	{
+		DeferredResult<RestDto<T>> result = new DeferredResult<RestDto<T>>();
+		result.setResult(response);
+		return result;
 	}
 
+	/**
+	 * This method runs a request on the database executor. Requests fail fast with 503 when the executor is saturated,
+	 * fail with 503 when the work does not finish within the timeout and fail with 500 when the work throws
+	 * @param work the request work
+	 * @return a deferred result completed with the DTO produced by the work
+	 */
+	private <T> DeferredResult<RestDto<T>> submit(final Supplier<RestDto<T>> work)
+	{
+		// answer with 503 if the work does not finish in time
+		final DeferredResult<RestDto<T>> result = new DeferredResult<RestDto<T>>(timeoutMillis, new RestDto<T>(null, 503, "Service Unavailable"));
+		
+		// use try/catch to handle a saturated executor
+		try 
+		{
+			// run the work under the read routing of the request, and drop it from the queue if it times out before starting
+			final ReadRoutingContext context = ReadRoutingContext.current();
+			final FutureTask<Void> task = new FutureTask<Void>(() -> {
+				ReadRoutingContext previous = ReadRoutingContext.bind(context);
+				try 
+				{
+					result.setResult(work.get());
+				}
+				
+				// handle anything the work did not answer itself, such as a failure in its own error handling, so the client does not wait for the timeout
+				catch (Throwable e)
+				{
+					logger.error("Order request failed", e);
+					result.setResult(new RestDto<T>(null, 500, "Internal error"));
+				}
+				finally 
+				{
+					ReadRoutingContext.bind(previous);
+				}
+			}, null);
+			result.onTimeout(() -> task.cancel(false));
+			executor.execute(task);
+		}
+		
+		// handle a full queue here
+		catch (RejectedExecutionException e)
+		{
+			// return DTO informing the client to back off
+			result.setResult(new RestDto<T>(null, 503, "Service Unavailable"));
+		}
+		return result;
+	}
 }
@@ -0,0 +1,56 @@
+package com.gcu.util;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.gcu.util.exception.AdmissionRejectedException;
+
+/**
+ * The AdmissionRejectedAdvice answers a request turned away by admission control, or by a full order executor,
+ * in the RestDto envelope, with the matching HTTP status and a Retry-After header
+ * @author Josh Van de Walle
+ *
+ */
+@ControllerAdvice
+public class AdmissionRejectedAdvice
+{
+	/**
+	 * This method answers a rejected request
+	 * @param e the rejection
+	 * @param request the rejected request
+	 * @return the response carrying a DTO with the rejection code and message
+	 */
+	@ExceptionHandler(AdmissionRejectedException.class)
+	public ResponseEntity<RestDto<Object>> handleRejected(AdmissionRejectedException e, HttpServletRequest request)
+	{
+		// the DTO is JSON even where the handler produces something else, such as the CSV export
+		request.removeAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+		return ResponseEntity.status(HttpStatus.valueOf(e.getCode()))
+				.header("Retry-After", Long.toString(Math.max(1, e.getRetryAfterSeconds())))
+				.body(new RestDto<Object>(null, e.getCode(), e.getMessage()));
+	}
+
+	/**
+	 * This method answers a request the order executor had no room for, such as a streamed read
+	 * @param e the rejection
+	 * @param request the rejected request
+	 * @return the response carrying a DTO with 503, or null while the rejection is still to be dispatched
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<RestDto<Object>> handleSaturated(RejectedExecutionException e, HttpServletRequest request)
+	{
+		// Spring both throws the rejection and dispatches it as the async result, so answer it only once, on the dispatch
+		if (request.isAsyncStarted())
+		{
+			return null;
+		}
+		return handleRejected(new AdmissionRejectedException(503, "Service Unavailable", 1), request);
+	}
+}
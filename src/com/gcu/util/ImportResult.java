@@ -0,0 +1,66 @@
+package com.gcu.util;
+
+import java.util.List;
+
+public class ImportResult
+{
+	// records read, not counting the header
+	private long rows;
+	
+	// orders placed, or accepted if orders are written behind
+	private long imported;
+	
+	// records that were not valid orders
+	private long rejected;
+	
+	// valid orders the database did not take
+	private long failed;
+	
+	private long elapsedMillis;
+	
+	private long rowsPerSecond;
+	
+	// the first records that were rejected or failed, indexed by line number
+	private List<ItemResult> errors;
+
+	public ImportResult(long rows, long imported, long rejected, long failed, long elapsedMillis, List<ItemResult> errors) {
+		super();
+		this.rows = rows;
+		this.imported = imported;
+		this.rejected = rejected;
+		this.failed = failed;
+		this.elapsedMillis = elapsedMillis;
+		this.rowsPerSecond = rows * 1000 / Math.max(1, elapsedMillis);
+		this.errors = errors;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public long getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	public List<ItemResult> getErrors() {
+		return errors;
+	}
+	
+	
+}
@@ -0,0 +1,44 @@
+package com.gcu.util;
+
+public class ItemResult
+{
+	// position of the item in the request, or its line in an imported file
+	private long index;
+	
+	// ID of the order the item refers to, or null for a new order
+	private Integer id;
+	
+	private int code;
+	
+	private String message;
+
+	public ItemResult(long index, int code, String message) {
+		this(index, null, code, message);
+	}
+
+	public ItemResult(long index, Integer id, int code, String message) {
+		super();
+		this.index = index;
+		this.id = id;
+		this.code = code;
+		this.message = message;
+	}
+
+	public long getIndex() {
+		return index;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+	
+	
+}
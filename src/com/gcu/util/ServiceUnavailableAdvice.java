@@ -0,0 +1,42 @@
+package com.gcu.util;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * The ServiceUnavailableAdvice mirrors a 503 DTO code onto the HTTP status and adds a Retry-After header,
+ * so clients and load balancers back off when the service is saturated
+ * @author Josh Van de Walle
+ *
+ */
+@ControllerAdvice
+public class ServiceUnavailableAdvice implements ResponseBodyAdvice<Object>
+{
+	// Seconds a client is asked to wait before retrying
+	private static final String RETRY_AFTER_SECONDS = "1";
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType)
+	{
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response)
+	{
+		// only a saturated service changes the HTTP status
+		if (body instanceof RestDto && ((RestDto<?>) body).getCode() == 503)
+		{
+			response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+			response.getHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+		}
+		return body;
+	}
+}
@@ -0,0 +1,157 @@
+package com.gcu.util.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The ConcurrencyLimiter caps the requests running at once and adapts the cap to the latency it observes, additive
+ * increase and multiplicative decrease: every request that finishes within the target latency while the cap is in
+ * use raises the cap by a fraction, so the cap grows by about one per round of requests, and a slow or overloaded
+ * request cuts it by the backoff ratio, at most once per target latency so one slow round cuts it once. Requests
+ * beyond the cap are turned away at once instead of queueing for database connections
+ * @author Josh Van de Walle
+ *
+ */
+public class ConcurrencyLimiter
+{
+	// settings
+	private boolean enabled = true;
+	private int minLimit = 4;
+	private int maxLimit = 200;
+	private long targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(500);
+	private double backoffRatio = 0.9;
+
+	// the current cap, as the bits of a double so it can grow by fractions without a lock
+	private final AtomicLong limit = new AtomicLong(Double.doubleToLongBits(20));
+
+	// requests running now
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	// when the cap was last cut
+	private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+
+	// counters
+	private final LongAdder allowed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder decreases = new LongAdder();
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.limit.set(Double.doubleToLongBits(initialLimit));
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public void setTargetLatencyMillis(long targetLatencyMillis) {
+		this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+
+	/**
+	 * This method tells whether requests are limited at all
+	 * @return true if the limiter is on
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * This method admits a request if fewer than the cap are running
+	 * @return true if the request may run, in which case release must be called when it ends
+	 */
+	public boolean tryAcquire()
+	{
+		int cap = (int) limit();
+		while (true)
+		{
+			int running = inFlight.get();
+			if (running >= cap)
+			{
+				rejected.increment();
+				return false;
+			}
+			if (inFlight.compareAndSet(running, running + 1))
+			{
+				allowed.increment();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * This method ends an admitted request and adapts the cap to how it went
+	 * @param latencyNanos how long the request took
+	 * @param overloaded true if the request failed because the service was saturated
+	 */
+	public void release(long latencyNanos, boolean overloaded)
+	{
+		int running = inFlight.getAndDecrement();
+
+		// IF the request was slow or overloaded, cut the cap once per target latency
+		if (overloaded || latencyNanos > targetLatencyNanos)
+		{
+			long now = System.nanoTime();
+			long last = lastDecrease.get();
+			if (now - last >= targetLatencyNanos && lastDecrease.compareAndSet(last, now))
+			{
+				update(cap -> Math.max(minLimit, cap * backoffRatio));
+				decreases.increment();
+			}
+		}
+
+		// otherwise raise the cap, but only while it is in use so an idle service does not grow an untested cap
+		else if (running * 2 >= limit())
+		{
+			update(cap -> Math.min(maxLimit, cap + 1 / cap));
+		}
+	}
+
+	/**
+	 * This method returns the limiter counters
+	 * @return the concurrency limiter statistics
+	 */
+	public ConcurrencyLimiterStats getStats()
+	{
+		return new ConcurrencyLimiterStats(enabled, (int) limit(), inFlight.get(), allowed.sum(), rejected.sum(), decreases.sum());
+	}
+
+	/**
+	 * This method reads the cap
+	 */
+	private double limit()
+	{
+		return Double.longBitsToDouble(limit.get());
+	}
+
+	/**
+	 * This method changes the cap without a lock
+	 */
+	private void update(DoubleUnaryOperator change)
+	{
+		while (true)
+		{
+			long current = limit.get();
+			long next = Double.doubleToLongBits(change.applyAsDouble(Double.longBitsToDouble(current)));
+			if (limit.compareAndSet(current, next))
+			{
+				return;
+			}
+		}
+	}
+}
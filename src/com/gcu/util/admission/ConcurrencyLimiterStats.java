@@ -0,0 +1,50 @@
+package com.gcu.util.admission;
+
+public class ConcurrencyLimiterStats
+{
+	private boolean enabled;
+
+	private int limit;
+
+	private int inFlight;
+
+	private long allowed;
+
+	private long rejected;
+
+	private long decreases;
+
+	public ConcurrencyLimiterStats(boolean enabled, int limit, int inFlight, long allowed, long rejected, long decreases) {
+		super();
+		this.enabled = enabled;
+		this.limit = limit;
+		this.inFlight = inFlight;
+		this.allowed = allowed;
+		this.rejected = rejected;
+		this.decreases = decreases;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public long getAllowed() {
+		return allowed;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getDecreases() {
+		return decreases;
+	}
+}
@@ -0,0 +1,113 @@
+package com.gcu.util.admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RateLimiter gives every client its own token bucket, so one client sending too many requests is turned
+ * away without slowing the others. Buckets are taken without locks. Buckets that have refilled are forgotten once
+ * the limiter tracks too many clients, and clients beyond that share one bucket
+ * @author Josh Van de Walle
+ *
+ */
+public class RateLimiter
+{
+	// requests a client may make per second on average, 0 for no limit
+	private double ratePerSecond = 100;
+
+	// requests a client may make at once after being idle
+	private int burst = 200;
+
+	// the most clients tracked
+	private int maxClients = 100000;
+
+	// buckets by client
+	private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+	// the bucket shared by clients beyond the most tracked
+	private final TokenBucket overflow = new TokenBucket(System.nanoTime());
+
+	// when the buckets were last swept, so a flood of new clients does not sweep on every request
+	private volatile long lastSweep = System.nanoTime();
+
+	// counters
+	private final LongAdder allowed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	public void setRatePerSecond(double ratePerSecond) {
+		this.ratePerSecond = ratePerSecond;
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	public void setMaxClients(int maxClients) {
+		this.maxClients = maxClients;
+	}
+
+	/**
+	 * This method tells whether requests are limited at all
+	 * @return true if a rate is set
+	 */
+	public boolean isEnabled()
+	{
+		return ratePerSecond > 0;
+	}
+
+	/**
+	 * This method takes a token for a request of a client
+	 * @param client the API key or address of the client
+	 * @return 0 if the request may run, otherwise the milliseconds until the client may send another
+	 */
+	public long tryAcquire(String client)
+	{
+		long now = System.nanoTime();
+		long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+		long tolerance = interval * (Math.max(1, burst) - 1);
+
+		// find the client's bucket, making room for a new client if needed
+		TokenBucket bucket = buckets.get(client);
+		if (bucket == null)
+		{
+			if (buckets.size() >= maxClients)
+			{
+				sweep(now);
+			}
+			bucket = buckets.size() < maxClients ? buckets.computeIfAbsent(client, key -> new TokenBucket(now)) : overflow;
+		}
+
+		// take a token
+		long waitNanos = bucket.tryAcquire(now, interval, tolerance);
+		if (waitNanos == 0)
+		{
+			allowed.increment();
+			return 0;
+		}
+		rejected.increment();
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+	}
+
+	/**
+	 * This method returns the rate limiter counters
+	 * @return the rate limiter statistics
+	 */
+	public RateLimiterStats getStats()
+	{
+		return new RateLimiterStats(isEnabled(), buckets.size(), allowed.sum(), rejected.sum());
+	}
+
+	/**
+	 * This method forgets the clients whose buckets have refilled
+	 */
+	private void sweep(long now)
+	{
+		if (now - lastSweep < TimeUnit.SECONDS.toNanos(1))
+		{
+			return;
+		}
+		lastSweep = now;
+		buckets.values().removeIf(bucket -> bucket.isFull(now));
+	}
+}
@@ -0,0 +1,36 @@
+package com.gcu.util.admission;
+
+public class RateLimiterStats
+{
+	private boolean enabled;
+
+	private int clients;
+
+	private long allowed;
+
+	private long rejected;
+
+	public RateLimiterStats(boolean enabled, int clients, long allowed, long rejected) {
+		super();
+		this.enabled = enabled;
+		this.clients = clients;
+		this.allowed = allowed;
+		this.rejected = rejected;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getClients() {
+		return clients;
+	}
+
+	public long getAllowed() {
+		return allowed;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+}
@@ -0,0 +1,54 @@
+package com.gcu.util.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket kept as the time its next token is due, so taking a token is one compare-and-set and a bucket
+ * needs no refill task. A bucket that is due before now holds a full burst
+ * @author Josh Van de Walle
+ *
+ */
+final class TokenBucket
+{
+	// when the bucket, drained by the tokens taken so far, would hold one token again
+	private final AtomicLong due;
+
+	TokenBucket(long now)
+	{
+		this.due = new AtomicLong(now);
+	}
+
+	/**
+	 * This method takes a token if the bucket has one
+	 * @param now the current time in nanoseconds
+	 * @param interval the nanoseconds it takes to earn one token
+	 * @param tolerance how far ahead of now tokens may be taken, the burst size less one token times the interval
+	 * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+	 */
+	long tryAcquire(long now, long interval, long tolerance)
+	{
+		while (true)
+		{
+			long current = due.get();
+			long next = Math.max(current, now);
+			if (next - now > tolerance)
+			{
+				return next - now - tolerance;
+			}
+			if (due.compareAndSet(current, next + interval))
+			{
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * This method tells whether the bucket is full, so forgetting it loses nothing
+	 * @param now the current time in nanoseconds
+	 * @return true if no token was taken recently
+	 */
+	boolean isFull(long now)
+	{
+		return due.get() - now <= 0;
+	}
+}
@@ -0,0 +1,66 @@
+package com.gcu.util.cache;
+
+import java.util.List;
+
+/**
+ * This interface is used to define the methods of caches placed in front of data services
+ * @author Josh Van de Walle
+ *
+ * @param <T> the object model this cache holds
+ */
+public interface CacheInterface<T> 
+{
+	/**
+	 * This method finds a cached record by ID, if it was cached at the version of the data or a later one
+	 * @param id the unique ID of the record
+	 * @param version the version of the data the caller read
+	 * @return the cached record, or null on a miss
+	 */
+	public T get(int id, long version);
+	
+	/**
+	 * This method finds the cached list of all records, if it was cached at the version of the data or a later one
+	 * @param version the version of the data the caller read
+	 * @return the cached list, or null on a miss
+	 */
+	public List<T> getAll(long version);
+	
+	/**
+	 * This method caches a record by ID at the version of the data read before the record was loaded, so it is never
+	 * served to a caller that read a later version. A copy cached at a later version is kept instead
+	 * @param id the unique ID of the record
+	 * @param t the record
+	 * @param version the version read before the record was loaded
+	 */
+	public void put(int id, T t, long version);
+	
+	/**
+	 * This method caches the list of all records at the version of the data read before the list was loaded, so it is
+	 * never served to a caller that read a later version. A list cached at a later version is kept instead
+	 * @param list the list of all records
+	 * @param version the version read before the list was loaded
+	 */
+	public void putAll(List<T> list, long version);
+	
+	/**
+	 * This method removes a record and the list of all records after the record changed
+	 * @param id the unique ID of the record
+	 */
+	public void invalidate(int id);
+	
+	/**
+	 * This method removes the list of all records after records were added
+	 */
+	public void invalidateAll();
+	
+	/**
+	 * This method removes every cached value
+	 */
+	public void clear();
+	
+	/**
+	 * This method reads the cache counters
+	 * @return a snapshot of the cache counters
+	 */
+	public CacheStats getStats();
+}
@@ -0,0 +1,43 @@
+package com.gcu.util.cache;
+
+public class CacheStats
+{
+	private long hits;
+	
+	private long misses;
+	
+	private long evictions;
+	
+	private int size;
+
+	public CacheStats(long hits, long misses, long evictions, int size) {
+		super();
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.size = size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public int getSize() {
+		return size;
+	}
+	
+	public double getHitRatio() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+	
+	
+}
@@ -0,0 +1,33 @@
+package com.gcu.util.cache;
+
+public class FlightStats
+{
+	private long requests;
+	
+	private long shared;
+	
+	private int inFlight;
+
+	public FlightStats(long requests, long shared, int inFlight) {
+		super();
+		this.requests = requests;
+		this.shared = shared;
+		this.inFlight = inFlight;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public long getShared() {
+		return shared;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public double getCoalescingRatio() {
+		return requests == 0 ? 0 : (double) shared / requests;
+	}
+}
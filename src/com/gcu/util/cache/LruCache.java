@@ -0,0 +1,185 @@
+package com.gcu.util.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LruCache is a single node cache that holds records by ID in least recently used order and the list of all records,
+ * expiring both after a fixed time to live. Each value is kept at the version of the data it was loaded at, so a
+ * change made through another node is seen as soon as a caller reads its version
+ * @author Josh Van de Walle
+ *
+ * @param <T> the object model this cache holds
+ */
+public class LruCache<T> implements CacheInterface<T> 
+{
+	// the most records held by ID before the least recently used is evicted
+	private int maxSize = 10000;
+	
+	// how long a cached value stays valid
+	private long ttlNanos = TimeUnit.SECONDS.toNanos(30);
+	
+	// records by ID in access order, guarded by this
+	private final LinkedHashMap<Integer, Entry<T>> entries = new LinkedHashMap<Integer, Entry<T>>(16, 0.75f, true) 
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Entry<T>> eldest) 
+		{
+			// evict the least recently used record once the cache is full
+			if (size() > maxSize)
+			{
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	};
+	
+	// the list of all records, guarded by this
+	private Entry<List<T>> all;
+	
+	// counters
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * This method is used to set the most records held by ID
+	 * @param maxSize the maximum number of records
+	 */
+	public void setMaxSize(int maxSize) 
+	{
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * This method is used to set how long a cached value stays valid
+	 * @param ttlMillis the time to live in milliseconds
+	 */
+	public void setTtlMillis(long ttlMillis) 
+	{
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+	}
+
+	@Override
+	public synchronized T get(int id, long version) 
+	{
+		// look up the record and drop it if it has expired
+		Entry<T> entry = entries.get(id);
+		if (entry != null && entry.isExpired())
+		{
+			entries.remove(id);
+			evictions.increment();
+			entry = null;
+		}
+		
+		// count the lookup, missing a record older than the caller's version
+		return count(entry != null && entry.version >= version ? entry : null);
+	}
+
+	@Override
+	public synchronized List<T> getAll(long version) 
+	{
+		// drop the list if it has expired
+		if (all != null && all.isExpired())
+		{
+			all = null;
+			evictions.increment();
+		}
+		
+		// count the lookup, missing a list older than the caller's version
+		return count(all != null && all.version >= version ? all : null);
+	}
+
+	@Override
+	public synchronized void put(int id, T t, long version) 
+	{
+		// keep a copy loaded at a later version, which a slower load must not replace
+		Entry<T> entry = entries.get(id);
+		if (entry == null || entry.version <= version)
+		{
+			entries.put(id, new Entry<T>(t, version, System.nanoTime() + ttlNanos));
+		}
+	}
+
+	@Override
+	public synchronized void putAll(List<T> list, long version) 
+	{
+		// keep a list loaded at a later version, which a slower load must not replace
+		if (all == null || all.version <= version)
+		{
+			// a shared list is already read only and keeps its serialized form, so it is cached as it is
+			all = new Entry<List<T>>(list instanceof SharedList ? list : Collections.unmodifiableList(list), version, System.nanoTime() + ttlNanos);
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(int id) 
+	{
+		entries.remove(id);
+		all = null;
+	}
+
+	@Override
+	public synchronized void invalidateAll() 
+	{
+		all = null;
+	}
+
+	@Override
+	public synchronized void clear() 
+	{
+		entries.clear();
+		all = null;
+	}
+
+	@Override
+	public synchronized CacheStats getStats() 
+	{
+		return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size() + (all == null ? 0 : 1));
+	}
+	
+	/**
+	 * This method counts a lookup as a hit or a miss
+	 * @param entry the entry found, or null
+	 * @return the cached value, or null on a miss
+	 */
+	private <V> V count(Entry<V> entry)
+	{
+		if (entry == null)
+		{
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.value;
+	}
+	
+	/**
+	 * A cached value, the version of the data it was loaded at and the time it expires
+	 */
+	private static final class Entry<V>
+	{
+		final V value;
+		final long version;
+		final long expiresAt;
+		
+		Entry(V value, long version, long expiresAt)
+		{
+			this.value = value;
+			this.version = version;
+			this.expiresAt = expiresAt;
+		}
+		
+		boolean isExpired()
+		{
+			return System.nanoTime() - expiresAt > 0;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.gcu.util.cache;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The SharedList is a read-only list handed to many responses at once, such as the cached list of all orders.
+ * It keeps each serialized form of a response built on it, so the list is serialized once per format instead of
+ * once per response, for as long as the list itself is kept
+ * @author Josh Van de Walle
+ *
+ * @param <T> the object model the list holds
+ */
+public final class SharedList<T> extends AbstractList<T> implements RandomAccess
+{
+	private final List<T> list;
+
+	// serialized responses built on this list, by format and envelope
+	private final ConcurrentHashMap<Object, byte[]> serialized = new ConcurrentHashMap<Object, byte[]>();
+
+	/**
+	 * This constructor shares a list, which must not change afterwards
+	 * @param list the list to share
+	 */
+	public SharedList(List<T> list)
+	{
+		this.list = list;
+	}
+
+	@Override
+	public T get(int index)
+	{
+		return list.get(index);
+	}
+
+	@Override
+	public int size()
+	{
+		return list.size();
+	}
+
+	/**
+	 * This method returns a serialized response built on this list, serializing it on first use. Callers asking
+	 * for the same key while it is being serialized wait for it instead of serializing it again
+	 * @param key identifies the format and the envelope around the list
+	 * @param serializer serializes the response
+	 * @return the serialized response, which must not be changed
+	 */
+	public byte[] serialized(Object key, Function<Object, byte[]> serializer)
+	{
+		return serialized.computeIfAbsent(key, serializer);
+	}
+}
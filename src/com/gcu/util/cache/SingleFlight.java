@@ -0,0 +1,80 @@
+package com.gcu.util.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The SingleFlight runs one load at a time per key. A caller that asks for a key while a load of it is running
+ * waits for that load and shares its result instead of starting another, so a burst of identical reads costs the
+ * database one query. The key must identify the data the load reads, including its version, so a caller never
+ * shares a load that started before a write it has to see
+ * @author Josh Van de Walle
+ *
+ */
+public class SingleFlight
+{
+	// loads running now, by key
+	private final ConcurrentHashMap<Object, CompletableFuture<Object>> flights = new ConcurrentHashMap<Object, CompletableFuture<Object>>();
+
+	// counters
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder shared = new LongAdder();
+
+	/**
+	 * This method returns the result of a load, running it only if no load of the key is running
+	 * @param key identifies the load
+	 * @param loader runs the load
+	 * @return the result of this caller's load, or of the load it joined
+	 * @throws RuntimeException the exception the load threw, for every caller that shared it
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V execute(Object key, Supplier<V> loader)
+	{
+		requests.increment();
+
+		// IF a load of the key is running, wait for it
+		CompletableFuture<Object> flight = new CompletableFuture<Object>();
+		CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+		if (running != null)
+		{
+			shared.increment();
+			try
+			{
+				return (V) running.join();
+			}
+			catch (CompletionException e)
+			{
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+			}
+		}
+
+		// otherwise run the load and hand its result to everyone who joined meanwhile
+		try
+		{
+			V value = loader.get();
+			flight.complete(value);
+			return value;
+		}
+		catch (RuntimeException | Error e)
+		{
+			flight.completeExceptionally(e);
+			throw e;
+		}
+		finally
+		{
+			flights.remove(key, flight);
+		}
+	}
+
+	/**
+	 * This method returns the load counters
+	 * @return the single-flight statistics
+	 */
+	public FlightStats getStats()
+	{
+		return new FlightStats(requests.sum(), shared.sum(), flights.size());
+	}
+}
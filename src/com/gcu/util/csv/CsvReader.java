@@ -0,0 +1,202 @@
+package com.gcu.util.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gcu.util.exception.CsvFormatException;
+
+/**
+ * The CsvReader parses RFC 4180 records from a reader one record at a time, so a file of any length is read in
+ * the memory of a single record. Fields may be quoted, with "" standing for a quote, and quoted fields may span
+ * lines. Blank lines are skipped
+ * @author Josh Van de Walle
+ *
+ */
+public class CsvReader
+{
+	// characters read from the input per call
+	private static final int BUFFER_SIZE = 65536;
+
+	private final Reader reader;
+	private final int maxFieldLength;
+
+	// characters read but not yet parsed
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+
+	// the field being parsed and the fields of the record so far
+	private final StringBuilder field = new StringBuilder();
+	private final List<String> fields = new ArrayList<String>();
+
+	// line the next character is on, and the line the last record started on
+	private long line = 1;
+	private long recordLine;
+
+	// true once the input is exhausted
+	private boolean eof;
+
+	/**
+	 * This constructor reads records from a reader
+	 * @param reader the input, which should be buffered by the caller only if it is also read elsewhere
+	 * @param maxFieldLength the longest field accepted, so an unterminated quote cannot swallow the whole input
+	 */
+	public CsvReader(Reader reader, int maxFieldLength)
+	{
+		this.reader = reader;
+		this.maxFieldLength = maxFieldLength;
+	}
+
+	/**
+	 * This method returns the line the last record returned by next started on
+	 * @return the line number, counting from 1
+	 */
+	public long getLine()
+	{
+		return recordLine;
+	}
+
+	/**
+	 * This method reads the next record
+	 * @return the fields of the record, or null at the end of the input
+	 * @throws IOException if the input cannot be read
+	 * @throws CsvFormatException if the record is malformed
+	 */
+	public String[] next() throws IOException
+	{
+		fields.clear();
+		field.setLength(0);
+		boolean quoted = false;
+		boolean afterQuote = false;
+		boolean empty = true;
+		recordLine = line;
+
+		while (true)
+		{
+			// refill the buffer when it is used up
+			if (position == limit && !fill())
+			{
+				if (quoted)
+				{
+					throw new CsvFormatException("Unterminated quote in the record on line " + recordLine);
+				}
+				if (empty)
+				{
+					return null;
+				}
+				return end();
+			}
+			char c = buffer[position++];
+
+			// inside quotes everything up to the closing quote is data
+			if (quoted)
+			{
+				if (c == '"')
+				{
+					quoted = false;
+					afterQuote = true;
+				}
+				else
+				{
+					if (c == '\n')
+					{
+						line++;
+					}
+					append(c);
+				}
+				continue;
+			}
+
+			switch (c)
+			{
+			case '"':
+				// a quote right after a closing quote is an escaped quote; otherwise it must open the field
+				if (afterQuote)
+				{
+					append('"');
+					quoted = true;
+					afterQuote = false;
+				}
+				else if (field.length() == 0)
+				{
+					quoted = true;
+					empty = false;
+				}
+				else
+				{
+					throw new CsvFormatException("Unexpected quote on line " + line);
+				}
+				break;
+			case ',':
+				fields.add(field.toString());
+				field.setLength(0);
+				afterQuote = false;
+				empty = false;
+				break;
+			case '\r':
+				// ignored, so CRLF and LF line endings both work
+				break;
+			case '\n':
+				line++;
+				if (empty)
+				{
+					// a blank line
+					recordLine = line;
+					break;
+				}
+				return end();
+			default:
+				if (afterQuote)
+				{
+					throw new CsvFormatException("Unexpected character after a closing quote on line " + line);
+				}
+				append(c);
+				empty = false;
+			}
+		}
+	}
+
+	/**
+	 * This method finishes the record being parsed
+	 */
+	private String[] end()
+	{
+		fields.add(field.toString());
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * This method adds a character to the field being parsed
+	 */
+	private void append(char c)
+	{
+		if (field.length() == maxFieldLength)
+		{
+			throw new CsvFormatException("Field longer than " + maxFieldLength + " characters in the record on line " + recordLine);
+		}
+		field.append(c);
+	}
+
+	/**
+	 * This method reads more input into the buffer
+	 * @return false at the end of the input
+	 */
+	private boolean fill() throws IOException
+	{
+		if (eof)
+		{
+			return false;
+		}
+		int read = reader.read(buffer, 0, buffer.length);
+		if (read <= 0)
+		{
+			eof = true;
+			return false;
+		}
+		position = 0;
+		limit = read;
+		return true;
+	}
+}
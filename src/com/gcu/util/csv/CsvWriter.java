@@ -0,0 +1,118 @@
+package com.gcu.util.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * The CsvWriter writes RFC 4180 records field by field, so a row is written without building it first. A field
+ * is quoted only if it contains a comma, a quote or a line break
+ * @author Josh Van de Walle
+ *
+ */
+public class CsvWriter
+{
+	private final Writer writer;
+
+	// true until the first field of the current record is written
+	private boolean first = true;
+
+	/**
+	 * This constructor writes records to a writer
+	 * @param writer the output, which should be buffered
+	 */
+	public CsvWriter(Writer writer)
+	{
+		this.writer = writer;
+	}
+
+	/**
+	 * This method writes a text field
+	 * @param value the text, or null for an empty field
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public CsvWriter field(String value) throws IOException
+	{
+		separate();
+		if (value == null)
+		{
+			return this;
+		}
+
+		// write the text as it is unless it would break the record
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++)
+		{
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote)
+		{
+			writer.write(value);
+			return this;
+		}
+		writer.write('"');
+		int start = 0;
+		for (int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', start))
+		{
+			writer.write(value, start, i + 1 - start);
+			writer.write('"');
+			start = i + 1;
+		}
+		writer.write(value, start, value.length() - start);
+		writer.write('"');
+		return this;
+	}
+
+	/**
+	 * This method writes a whole number field
+	 * @param value the number
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public CsvWriter field(long value) throws IOException
+	{
+		separate();
+		writer.write(Long.toString(value));
+		return this;
+	}
+
+	/**
+	 * This method writes a decimal field in plain notation, never with an exponent
+	 * @param value the number
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public CsvWriter field(BigDecimal value) throws IOException
+	{
+		separate();
+		writer.write(value.toPlainString());
+		return this;
+	}
+
+	/**
+	 * This method ends the current record
+	 * @throws IOException if the output cannot be written
+	 */
+	public void endRecord() throws IOException
+	{
+		writer.write("\r\n");
+		first = true;
+	}
+
+	/**
+	 * This method writes the comma before every field but the first of a record
+	 */
+	private void separate() throws IOException
+	{
+		if (first)
+		{
+			first = false;
+		}
+		else
+		{
+			writer.write(',');
+		}
+	}
+}
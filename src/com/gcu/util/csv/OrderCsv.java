@@ -0,0 +1,113 @@
+package com.gcu.util.csv;
+
+import java.io.IOException;
+
+import com.gcu.model.Order;
+import com.gcu.util.exception.CsvFormatException;
+import com.gcu.util.money.Money;
+
+/**
+ * The OrderCsv maps orders to and from CSV records. Exports start with a header of every column; imports find
+ * their columns by the header, so columns may come in any order and the ID and version columns may be left out
+ * @author Josh Van de Walle
+ *
+ */
+public final class OrderCsv
+{
+	// the columns of an export, in order
+	private static final String[] COLUMNS = { "id", "orderNo", "productName", "price", "quantity", "version" };
+
+	// the columns an import must have
+	private static final String[] REQUIRED = { "orderNo", "productName", "price", "quantity" };
+
+	// positions of the required columns in an import record
+	private final int orderNo;
+	private final int productName;
+	private final int price;
+	private final int quantity;
+
+	private OrderCsv(int[] positions)
+	{
+		this.orderNo = positions[0];
+		this.productName = positions[1];
+		this.price = positions[2];
+		this.quantity = positions[3];
+	}
+
+	/**
+	 * This method writes the header of an export
+	 * @param csv the output
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void writeHeader(CsvWriter csv) throws IOException
+	{
+		for (String column : COLUMNS)
+		{
+			csv.field(column);
+		}
+		csv.endRecord();
+	}
+
+	/**
+	 * This method writes an order as a record of an export
+	 * @param csv the output
+	 * @param order the order
+	 * @throws IOException if the output cannot be written
+	 */
+	public static void write(CsvWriter csv, Order order) throws IOException
+	{
+		csv.field(order.getId()).field(order.getOrderNo()).field(order.getProductName()).field(Money.toDecimal(order.getPriceCents()))
+				.field(order.getQuantity()).field(order.getVersion());
+		csv.endRecord();
+	}
+
+	/**
+	 * This method reads the header of an import
+	 * @param header the first record of the import
+	 * @return the mapping of the import's records to orders
+	 * @throws CsvFormatException if a required column is missing
+	 */
+	public static OrderCsv forHeader(String[] header)
+	{
+		// a byte order mark from a spreadsheet export is not part of the first column name
+		if (header.length > 0 && header[0].startsWith("\uFEFF"))
+		{
+			header[0] = header[0].substring(1);
+		}
+		int[] positions = new int[REQUIRED.length];
+		for (int i = 0; i < REQUIRED.length; i++)
+		{
+			positions[i] = -1;
+			for (int j = 0; j < header.length; j++)
+			{
+				if (header[j].trim().equalsIgnoreCase(REQUIRED[i]))
+				{
+					positions[i] = j;
+				}
+			}
+			if (positions[i] < 0)
+			{
+				throw new CsvFormatException("Missing column " + REQUIRED[i]);
+			}
+		}
+		return new OrderCsv(positions);
+	}
+
+	/**
+	 * This method reads a record of an import as a new order
+	 * @param record the fields of the record
+	 * @return the order, still to be validated
+	 * @throws NumberFormatException if the price or quantity is not a number, or the price has a fraction of a cent
+	 * @throws IllegalArgumentException if the record is missing fields
+	 */
+	public Order read(String[] record)
+	{
+		int width = Math.max(Math.max(orderNo, productName), Math.max(price, quantity)) + 1;
+		if (record.length < width)
+		{
+			throw new IllegalArgumentException("Expected at least " + width + " fields but found " + record.length);
+		}
+		return new Order(record[orderNo], record[productName], Money.parse(record[price].trim()),
+				Integer.parseInt(record[quantity].trim()));
+	}
+}
@@ -0,0 +1,16 @@
+package com.gcu.util.events;
+
+/**
+ * What a change feed subscriber loses when it reads slower than orders change and its buffer fills
+ * @author Josh Van de Walle
+ *
+ */
+public enum DropPolicy
+{
+	// discard the oldest buffered event to make room, keeping the subscriber close to live
+	DROP_OLDEST,
+	// discard the new event, keeping what is buffered in order
+	DROP_NEWEST,
+	// end the stream, so the subscriber reconnects and resumes from the last event it received
+	DISCONNECT
+}
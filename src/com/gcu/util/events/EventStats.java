@@ -0,0 +1,50 @@
+package com.gcu.util.events;
+
+public class EventStats
+{
+	private int subscribers;
+
+	private long published;
+
+	private long delivered;
+
+	private long dropped;
+
+	private long disconnected;
+
+	private long lastSequence;
+
+	public EventStats(int subscribers, long published, long delivered, long dropped, long disconnected, long lastSequence) {
+		super();
+		this.subscribers = subscribers;
+		this.published = published;
+		this.delivered = delivered;
+		this.dropped = dropped;
+		this.disconnected = disconnected;
+		this.lastSequence = lastSequence;
+	}
+
+	public int getSubscribers() {
+		return subscribers;
+	}
+
+	public long getPublished() {
+		return published;
+	}
+
+	public long getDelivered() {
+		return delivered;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getDisconnected() {
+		return disconnected;
+	}
+
+	public long getLastSequence() {
+		return lastSequence;
+	}
+}
@@ -0,0 +1,447 @@
+package com.gcu.util.events;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gcu.model.Order;
+import com.gcu.model.OrderEvent;
+
+/**
+ * The OrderEventBus publishes order changes to Server-Sent Events subscribers. Each event is serialized once
+ * and kept in a history ring, so a subscriber that reconnects resumes after the last event it received. Every
+ * subscriber has its own bounded ring drained by a small pool of sender threads, so publishing never waits for a
+ * client; a subscriber that falls a whole buffer behind loses events according to its drop policy and is told
+ * how many it lost. Sequence numbers start from the clock, so a sequence from before a restart is recognised as
+ * too old to resume from
+ * @author Josh Van de Walle
+ *
+ */
+public class OrderEventBus implements InitializingBean, DisposableBean
+{
+	private static final Logger logger = LoggerFactory.getLogger(OrderEventBus.class);
+
+	private static final ObjectWriter EVENT_WRITER = new ObjectMapper().writerFor(OrderEvent.class);
+
+	// events sent to a subscriber per turn on a sender thread, so busy subscribers take turns
+	private static final int SEND_BATCH = 256;
+
+	// settings
+	private int historySize = 10000;
+	private int maxSubscribers = 100;
+	private int senderThreads = 4;
+	private long heartbeatMillis = 15000;
+
+	// the last historySize events, indexed by sequence
+	private Entry[] history;
+	private final long firstSequence = System.currentTimeMillis() * 1000;
+	private long nextSequence = firstSequence;
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+	private ExecutorService senders;
+	private ScheduledExecutorService heartbeat;
+
+	// counters
+	private final LongAdder published = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder disconnected = new LongAdder();
+
+	public void setHistorySize(int historySize) {
+		this.historySize = historySize;
+	}
+
+	public void setMaxSubscribers(int maxSubscribers) {
+		this.maxSubscribers = maxSubscribers;
+	}
+
+	public void setSenderThreads(int senderThreads) {
+		this.senderThreads = senderThreads;
+	}
+
+	public void setHeartbeatMillis(long heartbeatMillis) {
+		this.heartbeatMillis = heartbeatMillis;
+	}
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		history = new Entry[historySize];
+		AtomicInteger threads = new AtomicInteger();
+		senders = Executors.newFixedThreadPool(senderThreads, task -> {
+			Thread thread = new Thread(task, "order-events-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		// a comment now and then keeps proxies from closing idle streams and finds subscribers that went away
+		heartbeat = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "order-events-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleWithFixedDelay(() -> {
+			for (Subscriber subscriber : subscribers)
+			{
+				subscriber.ping();
+			}
+		}, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * This method publishes a saved change to every subscriber
+	 * @param type the kind of change
+	 * @param order the order as it was saved
+	 */
+	public void publish(OrderEvent.Type type, Order order)
+	{
+		// copy the order so later changes to the caller's object do not leak into the feed
+		Order copy = new Order(order.getId(), order.getOrderNo(), order.getProductName(), order.getPriceCents(), order.getQuantity(), order.getVersion());
+
+		// number, record and hand out the event under one lock so every subscriber sees events in sequence order
+		synchronized (this)
+		{
+			OrderEvent event = new OrderEvent(nextSequence++, type, copy, System.currentTimeMillis());
+			Entry entry = new Entry(event.getSequence(), type.name(), serialize(event));
+			history[index(entry.sequence)] = entry;
+			for (Subscriber subscriber : subscribers)
+			{
+				subscriber.offer(entry);
+			}
+		}
+		published.increment();
+	}
+
+	/**
+	 * This method starts streaming events to a subscriber
+	 * @param emitter the stream to send events on
+	 * @param after the sequence of the last event the subscriber received, or null to start with the next event
+	 * @param bufferSize how many events may wait for the subscriber
+	 * @param policy what the subscriber loses once its buffer is full
+	 * @throws RejectedExecutionException if there are already as many subscribers as allowed
+	 */
+	public void subscribe(SseEmitter emitter, Long after, int bufferSize, DropPolicy policy)
+	{
+		if (subscriberCount.incrementAndGet() > maxSubscribers)
+		{
+			subscriberCount.decrementAndGet();
+			throw new RejectedExecutionException("Too many change feed subscribers");
+		}
+		Subscriber subscriber = new Subscriber(emitter, bufferSize, policy);
+		emitter.onCompletion(subscriber::remove);
+		emitter.onTimeout(subscriber::remove);
+
+		// join the live feed and replay what the subscriber missed, under the lock so no event falls in between
+		synchronized (this)
+		{
+			subscribers.add(subscriber);
+			if (after != null && after < nextSequence - 1)
+			{
+				long oldest = Math.max(firstSequence, nextSequence - historySize);
+				if (after + 1 < oldest)
+				{
+					// the events after the given one are gone, so the subscriber must reload everything it keeps
+					subscriber.reset = true;
+				}
+				for (long sequence = Math.max(after + 1, oldest); sequence < nextSequence; sequence++)
+				{
+					Entry entry = history[index(sequence)];
+					if (entry != null && entry.sequence == sequence)
+					{
+						subscriber.offer(entry);
+					}
+				}
+			}
+		}
+		subscriber.schedule();
+	}
+
+	/**
+	 * This method returns the subscriber and event counters
+	 * @return the change feed statistics
+	 */
+	public EventStats getStats()
+	{
+		long last;
+		synchronized (this)
+		{
+			last = nextSequence - 1;
+		}
+		return new EventStats(subscribers.size(), published.sum(), delivered.sum(), dropped.sum(), disconnected.sum(), last);
+	}
+
+	@Override
+	public void destroy()
+	{
+		heartbeat.shutdownNow();
+		for (Subscriber subscriber : subscribers)
+		{
+			subscriber.close();
+		}
+		senders.shutdown();
+	}
+
+	/**
+	 * This method finds the slot of a sequence number in the history
+	 */
+	private int index(long sequence)
+	{
+		return (int) Math.floorMod(sequence, (long) historySize);
+	}
+
+	/**
+	 * This method writes an event as JSON
+	 */
+	private static String serialize(OrderEvent event)
+	{
+		try
+		{
+			return EVENT_WRITER.writeValueAsString(event);
+		}
+		catch (JsonProcessingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A published event, serialized once for every subscriber
+	 */
+	private static final class Entry
+	{
+		final long sequence;
+		final String name;
+		final String json;
+
+		Entry(long sequence, String name, String json)
+		{
+			this.sequence = sequence;
+			this.name = name;
+			this.json = json;
+		}
+	}
+
+	/**
+	 * A subscriber and the events waiting for it. At most one sender thread works on a subscriber at a time
+	 */
+	private final class Subscriber
+	{
+		private final SseEmitter emitter;
+		private final DropPolicy policy;
+
+		// ring of waiting events
+		private final Entry[] buffer;
+		private int head;
+		private int size;
+
+		// events lost since the last batch was sent
+		private long lost;
+
+		// true if the subscriber asked to resume from an event no longer kept
+		private boolean reset;
+
+		// true while the subscriber should be sent a heartbeat
+		private boolean ping;
+
+		// true while a sender thread is scheduled for the subscriber
+		private boolean scheduled;
+
+		// true once the stream is over
+		private boolean closed;
+
+		Subscriber(SseEmitter emitter, int bufferSize, DropPolicy policy)
+		{
+			this.emitter = emitter;
+			this.policy = policy;
+			this.buffer = new Entry[bufferSize];
+		}
+
+		/**
+		 * This method adds an event to the buffer, applying the drop policy if it is full
+		 */
+		synchronized void offer(Entry entry)
+		{
+			if (closed)
+			{
+				return;
+			}
+			if (size == buffer.length)
+			{
+				// send what is buffered and end the stream; the subscriber resumes from the history
+				if (policy == DropPolicy.DISCONNECT)
+				{
+					closed = true;
+					disconnected.increment();
+					schedule();
+					return;
+				}
+				dropped.increment();
+				lost++;
+				if (policy == DropPolicy.DROP_NEWEST)
+				{
+					return;
+				}
+
+				// DROP_OLDEST
+				head = (head + 1) % buffer.length;
+				size--;
+			}
+			buffer[(head + size) % buffer.length] = entry;
+			size++;
+			schedule();
+		}
+
+		/**
+		 * This method asks for a heartbeat to be sent
+		 */
+		synchronized void ping()
+		{
+			ping = true;
+			schedule();
+		}
+
+		/**
+		 * This method hands the subscriber to a sender thread unless one already has it
+		 */
+		synchronized void schedule()
+		{
+			if (scheduled)
+			{
+				return;
+			}
+			scheduled = true;
+			try
+			{
+				senders.execute(this::send);
+			}
+			catch (RejectedExecutionException e)
+			{
+				// shutting down
+				scheduled = false;
+			}
+		}
+
+		/**
+		 * This method runs on a sender thread, sending one batch of waiting events
+		 */
+		private void send()
+		{
+			// take a batch and the pending notices
+			Entry[] batch;
+			long lostNow;
+			boolean resetNow;
+			boolean pingNow;
+			boolean closeNow;
+			synchronized (this)
+			{
+				int count = Math.min(size, SEND_BATCH);
+				batch = new Entry[count];
+				for (int i = 0; i < count; i++)
+				{
+					batch[i] = buffer[head];
+					buffer[head] = null;
+					head = (head + 1) % buffer.length;
+				}
+				size -= count;
+				lostNow = lost;
+				resetNow = reset;
+				pingNow = ping && count == 0;
+				closeNow = closed;
+				lost = 0;
+				reset = false;
+				ping = false;
+			}
+
+			// write them outside the lock, so a slow client only holds up its own buffer
+			try
+			{
+				if (resetNow)
+				{
+					emitter.send(SseEmitter.event().name("reset").data("{\"reason\":\"history\"}"));
+				}
+				if (lostNow > 0)
+				{
+					emitter.send(SseEmitter.event().name("dropped").data("{\"count\":" + lostNow + "}"));
+				}
+				for (Entry entry : batch)
+				{
+					emitter.send(SseEmitter.event().id(Long.toString(entry.sequence)).name(entry.name).data(entry.json));
+				}
+				delivered.add(batch.length);
+				if (pingNow)
+				{
+					emitter.send(SseEmitter.event().comment("heartbeat"));
+				}
+			}
+			catch (IOException | IllegalStateException e)
+			{
+				// the client went away
+				logger.debug("Change feed subscriber gone: {}", e.toString());
+				closeNow = true;
+			}
+
+			// end the stream, or go round again if more events arrived meanwhile
+			if (closeNow)
+			{
+				close();
+				return;
+			}
+			synchronized (this)
+			{
+				scheduled = false;
+				if (size > 0 || ping || lost > 0)
+				{
+					schedule();
+				}
+			}
+		}
+
+		/**
+		 * This method ends the stream
+		 */
+		void close()
+		{
+			remove();
+			synchronized (this)
+			{
+				closed = true;
+			}
+			try
+			{
+				emitter.complete();
+			}
+			catch (IllegalStateException e)
+			{
+				// already complete
+			}
+		}
+
+		/**
+		 * This method stops delivering events to the subscriber
+		 */
+		void remove()
+		{
+			if (subscribers.remove(this))
+			{
+				subscriberCount.decrementAndGet();
+			}
+		}
+	}
+}
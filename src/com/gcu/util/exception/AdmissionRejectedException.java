@@ -0,0 +1,34 @@
+package com.gcu.util.exception;
+
+/**
+ * Thrown when admission control turns a request away before it runs, so it can be answered in the RestDto envelope
+ * @author Josh Van de Walle
+ *
+ */
+public class AdmissionRejectedException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	// the status to answer with, 429 or 503
+	private final int code;
+
+	// seconds the client should wait before retrying
+	private final long retryAfterSeconds;
+
+	public AdmissionRejectedException(int code, String message, long retryAfterSeconds)
+	{
+		super(message);
+		this.code = code;
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public int getCode()
+	{
+		return code;
+	}
+
+	public long getRetryAfterSeconds()
+	{
+		return retryAfterSeconds;
+	}
+}
@@ -0,0 +1,16 @@
+package com.gcu.util.exception;
+
+/**
+ * Thrown when a record changed between being read and being updated, so the update was not applied
+ * @author Josh Van de Walle
+ *
+ */
+public class ConcurrentUpdateException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public ConcurrentUpdateException(String message)
+	{
+		super(message);
+	}
+}
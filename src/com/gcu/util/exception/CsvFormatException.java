@@ -0,0 +1,16 @@
+package com.gcu.util.exception;
+
+/**
+ * Thrown when CSV input cannot be parsed, so the rest of the input cannot be read
+ * @author Josh Van de Walle
+ *
+ */
+public class CsvFormatException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public CsvFormatException(String message)
+	{
+		super(message);
+	}
+}
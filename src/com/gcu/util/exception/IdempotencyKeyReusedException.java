@@ -0,0 +1,16 @@
+package com.gcu.util.exception;
+
+/**
+ * Thrown when an idempotency key is sent again with a different request, so the stored response does not answer it
+ * @author Josh Van de Walle
+ *
+ */
+public class IdempotencyKeyReusedException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyKeyReusedException(String message)
+	{
+		super(message);
+	}
+}
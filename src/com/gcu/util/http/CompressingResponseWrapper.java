@@ -0,0 +1,437 @@
+package com.gcu.util.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * The CompressingResponseWrapper buffers the start of a response until it reaches a threshold, then switches to
+ * a compressed stream. A response that ends below the threshold is sent as it is with its length set, and an event
+ * stream is always sent as it is so each event reaches the client when it is flushed
+ * @author Josh Van de Walle
+ *
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper
+{
+	// Encoding to apply, gzip or deflate
+	private final String encoding;
+	
+	// Bytes a response must reach before it is compressed
+	private final int minSize;
+	
+	// Deflater level
+	private final int level;
+	
+	// Start of the response, held until the threshold decides the encoding
+	private ByteArrayOutputStream buffer;
+	
+	// Stream the body goes to once the encoding is decided
+	private OutputStream target;
+	
+	// Deflater of the compressed stream, released when the response is finished
+	private Deflater deflater;
+	
+	private ServletOutputStream outputStream;
+	private PrintWriter writer;
+	private boolean finished;
+	
+	/**
+	 * This constructor wraps a response
+	 * @param response the response being wrapped
+	 * @param encoding gzip or deflate
+	 * @param minSize bytes a response must reach before it is compressed
+	 * @param level the deflater level
+	 */
+	CompressingResponseWrapper(HttpServletResponse response, String encoding, int minSize, int level)
+	{
+		super(response);
+		this.encoding = encoding;
+		this.minSize = minSize;
+		this.level = level;
+		this.buffer = new ByteArrayOutputStream(Math.min(minSize, 8192));
+		
+		// caches must keep the encodings apart
+		response.addHeader("Vary", "Accept-Encoding");
+	}
+	
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException
+	{
+		if (writer != null)
+		{
+			throw new IllegalStateException("getWriter() has already been called");
+		}
+		if (outputStream == null)
+		{
+			outputStream = new CompressingOutputStream();
+		}
+		return outputStream;
+	}
+	
+	@Override
+	public PrintWriter getWriter() throws IOException
+	{
+		if (outputStream != null && writer == null)
+		{
+			throw new IllegalStateException("getOutputStream() has already been called");
+		}
+		if (writer == null)
+		{
+			outputStream = new CompressingOutputStream();
+			writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+		}
+		return writer;
+	}
+	
+	@Override
+	public void setContentLength(int len)
+	{
+		setContentLengthLong(len);
+	}
+	
+	@Override
+	public void setContentLengthLong(long len)
+	{
+		// a body known to be small is sent as it is
+		if (target == null && len < minSize)
+		{
+			raw();
+			super.setContentLengthLong(len);
+		}
+		
+		// the length of an uncompressed body is still accurate
+		else if (isRaw())
+		{
+			super.setContentLengthLong(len);
+		}
+	}
+	
+	@Override
+	public void setHeader(String name, String value)
+	{
+		if ("Content-Length".equalsIgnoreCase(name))
+		{
+			setContentLengthLong(Long.parseLong(value));
+		}
+		else
+		{
+			super.setHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addHeader(String name, String value)
+	{
+		// Spring writes the headers of a message converter with addHeader
+		if ("Content-Length".equalsIgnoreCase(name))
+		{
+			setContentLengthLong(Long.parseLong(value));
+		}
+		else
+		{
+			super.addHeader(name, value);
+		}
+	}
+
+	@Override
+	public void setIntHeader(String name, int value)
+	{
+		if ("Content-Length".equalsIgnoreCase(name))
+		{
+			setContentLengthLong(value);
+		}
+		else
+		{
+			super.setIntHeader(name, value);
+		}
+	}
+
+	@Override
+	public void addIntHeader(String name, int value)
+	{
+		if ("Content-Length".equalsIgnoreCase(name))
+		{
+			setContentLengthLong(value);
+		}
+		else
+		{
+			super.addIntHeader(name, value);
+		}
+	}
+
+	@Override
+	public void flushBuffer() throws IOException
+	{
+		if (writer != null)
+		{
+			writer.flush();
+		}
+		
+		// an explicit flush means more of the body follows later, so decide the encoding of what is buffered now
+		if (target == null && isEventStream())
+		{
+			raw();
+		}
+		else if (target == null && buffer.size() > 0)
+		{
+			compress();
+		}
+		
+		// sync flush the deflater so everything written so far reaches the client
+		if (target != null)
+		{
+			target.flush();
+			super.flushBuffer();
+		}
+	}
+	
+	@Override
+	public void resetBuffer()
+	{
+		if (target == null)
+		{
+			buffer.reset();
+		}
+		super.resetBuffer();
+	}
+	
+	@Override
+	public void reset()
+	{
+		if (target == null)
+		{
+			buffer.reset();
+		}
+		super.reset();
+	}
+	
+	/**
+	 * This method completes the response, sending a buffered body as it is or ending the compressed stream
+	 * @throws IOException if the response cannot be written
+	 */
+	void finish() throws IOException
+	{
+		if (finished)
+		{
+			return;
+		}
+		finished = true;
+		if (writer != null)
+		{
+			writer.flush();
+		}
+		
+		// the whole body fit under the threshold
+		if (target == null)
+		{
+			if (buffer.size() > 0)
+			{
+				if (!isCommitted())
+				{
+					super.setContentLengthLong(buffer.size());
+				}
+				raw();
+			}
+			return;
+		}
+		
+		// end the compressed stream and release the deflater, even if the client has gone
+		if (deflater != null)
+		{
+			try
+			{
+				((DeflaterOutputStream) target).finish();
+				target.flush();
+			}
+			finally
+			{
+				deflater.end();
+			}
+		}
+	}
+	
+	/**
+	 * This method abandons a response that failed, dropping the buffered body and releasing the deflater
+	 * without writing anything, so the container can still send its error response
+	 */
+	void release()
+	{
+		if (finished)
+		{
+			return;
+		}
+		finished = true;
+		buffer = null;
+		if (deflater != null)
+		{
+			deflater.end();
+		}
+	}
+	
+	/**
+	 * This method decides to send the body as it is, writing out anything buffered
+	 */
+	private void raw()
+	{
+		try
+		{
+			target = getResponse().getOutputStream();
+			buffer.writeTo(target);
+			buffer = null;
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * This method checks whether the response is an event stream, which must reach the client event by event
+	 * @return true if the content type is text/event-stream
+	 */
+	private boolean isEventStream()
+	{
+		String type = getContentType();
+		return type != null && type.startsWith("text/event-stream");
+	}
+	
+	/**
+	 * This method checks whether the body is being sent as it is
+	 * @return true if the body is not compressed
+	 */
+	private boolean isRaw()
+	{
+		return target != null && deflater == null;
+	}
+	
+	/**
+	 * This method decides to compress the body, writing out anything buffered through the compressed stream
+	 * @throws IOException if the response cannot be written
+	 */
+	private void compress() throws IOException
+	{
+		// a response already encoded or committed cannot be compressed, and an event stream is not
+		if (isCommitted() || containsHeader("Content-Encoding") || isEventStream())
+		{
+			raw();
+			return;
+		}
+		
+		// a length set while the body was buffered was held back, so none was sent for the compressed body
+		HttpServletResponse response = (HttpServletResponse) getResponse();
+		response.setHeader("Content-Encoding", encoding);
+		
+		// sync flush lets streamed responses reach the client as they are written
+		if ("gzip".equals(encoding))
+		{
+			LevelledGzipOutputStream gzip = new LevelledGzipOutputStream(response.getOutputStream(), level);
+			deflater = gzip.deflater();
+			target = gzip;
+		}
+		else
+		{
+			deflater = new Deflater(level);
+			target = new DeflaterOutputStream(response.getOutputStream(), deflater, 8192, true);
+		}
+		buffer.writeTo(target);
+		buffer = null;
+	}
+	
+	/**
+	 * The stream the body is written to, buffering until the threshold is reached
+	 */
+	private class CompressingOutputStream extends ServletOutputStream
+	{
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			// an event stream is sent as it is from its first byte
+			if (target == null && isEventStream())
+			{
+				raw();
+			}
+			if (target == null)
+			{
+				// keep buffering until the response is large enough to compress
+				buffer.write(b, off, len);
+				if (buffer.size() >= minSize)
+				{
+					compress();
+				}
+				return;
+			}
+			target.write(b, off, len);
+		}
+		
+		@Override
+		public void flush() throws IOException
+		{
+			// a response still under the threshold waits for more output
+			if (target != null)
+			{
+				target.flush();
+			}
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			finish();
+		}
+
+		@Override
+		public boolean isReady()
+		{
+			// a body sent as it is may be written without blocking, so report the container's stream
+			return !isRaw() || ((ServletOutputStream) target).isReady();
+		}
+
+		@Override
+		public void setWriteListener(WriteListener listener)
+		{
+			// non-blocking writes go to the container's stream as they are. A body already compressed cannot switch
+			if (deflater != null)
+			{
+				throw new IllegalStateException("Non-blocking writes cannot follow a compressed body");
+			}
+			if (target == null)
+			{
+				raw();
+			}
+			((ServletOutputStream) target).setWriteListener(listener);
+		}
+	}
+	
+	/**
+	 * A gzip stream with a chosen deflater level
+	 */
+	private static class LevelledGzipOutputStream extends GZIPOutputStream
+	{
+		LevelledGzipOutputStream(OutputStream out, int level) throws IOException
+		{
+			super(out, 8192, true);
+			def.setLevel(level);
+		}
+		
+		Deflater deflater()
+		{
+			return def;
+		}
+	}
+}
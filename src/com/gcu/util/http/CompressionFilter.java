@@ -0,0 +1,130 @@
+package com.gcu.util.http;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The CompressionFilter gzip or deflate encodes responses larger than a threshold for clients that accept it.
+ * Small responses are sent as they are, since compressing them costs more CPU than the bandwidth it saves.
+ * Asynchronous requests are finished on the dispatch that completes them
+ * @author Josh Van de Walle
+ *
+ */
+public class CompressionFilter implements Filter
+{
+	// request attribute holding the response wrapper across async dispatches
+	private static final String WRAPPER = CompressionFilter.class.getName() + ".wrapper";
+	
+	// Bytes a response must reach before it is compressed
+	private int minSize = 2048;
+	
+	// Deflater level from 1 (fastest) to 9 (smallest)
+	private int level = Deflater.BEST_SPEED;
+
+	@Override
+	public void init(FilterConfig config) throws ServletException
+	{
+		// read the optional settings
+		if (config.getInitParameter("minSize") != null)
+		{
+			minSize = Integer.parseInt(config.getInitParameter("minSize"));
+		}
+		if (config.getInitParameter("level") != null)
+		{
+			level = Integer.parseInt(config.getInitParameter("level"));
+		}
+	}
+
+	@Override
+	public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException
+	{
+		HttpServletRequest request = (HttpServletRequest) req;
+		HttpServletResponse response = (HttpServletResponse) res;
+		
+		// reuse the wrapper of the dispatch that started an async request
+		CompressingResponseWrapper wrapper = (CompressingResponseWrapper) request.getAttribute(WRAPPER);
+		if (wrapper == null)
+		{
+			// leave the response alone if the client cannot decode it. The wrapper sends an event stream as it is,
+			// from its content type, whatever the request asked for
+			String encoding = encoding(request.getHeader("Accept-Encoding"));
+			if (encoding == null)
+			{
+				chain.doFilter(request, response);
+				return;
+			}
+			wrapper = new CompressingResponseWrapper(response, encoding, minSize, level);
+			request.setAttribute(WRAPPER, wrapper);
+		}
+		
+		// run the request and finish the encoding unless the request continues on another thread. A request that failed
+		// is abandoned instead, so the deflater is released and the container can send its error response
+		boolean completed = false;
+		try
+		{
+			chain.doFilter(request, wrapper);
+			completed = true;
+		}
+		finally
+		{
+			if (!request.isAsyncStarted())
+			{
+				if (completed)
+				{
+					wrapper.finish();
+				}
+				else
+				{
+					wrapper.release();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method chooses the encoding to use from an Accept-Encoding header, preferring gzip
+	 * @param acceptEncoding the header, may be null
+	 * @return gzip, deflate, or null if the client accepts neither
+	 */
+	static String encoding(String acceptEncoding)
+	{
+		if (acceptEncoding == null)
+		{
+			return null;
+		}
+		String deflate = null;
+		for (String token : acceptEncoding.split(","))
+		{
+			// skip codings the client refuses with q=0
+			String[] parts = token.trim().split(";");
+			String coding = parts[0].trim();
+			if (parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?"))
+			{
+				continue;
+			}
+			if (coding.equalsIgnoreCase("gzip"))
+			{
+				return "gzip";
+			}
+			if (coding.equalsIgnoreCase("deflate"))
+			{
+				deflate = "deflate";
+			}
+		}
+		return deflate;
+	}
+
+	@Override
+	public void destroy()
+	{
+	}
+}
@@ -0,0 +1,133 @@
+package com.gcu.util.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gcu.util.RestDto;
+import com.gcu.util.cache.SharedList;
+
+/**
+ * The RestDtoHttpMessageConverter writes RestDto responses in one Jackson format, such as JSON or Smile.
+ * The writer for each response type is built once, with its serializer resolved, and reused for every response.
+ * A response whose data is a SharedList is serialized once and its bytes reused by every response built on the list
+ * @author Josh Van de Walle
+ *
+ */
+public class RestDtoHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object>
+{
+	// Mapper for the format this converter writes
+	private final ObjectMapper mapper;
+	
+	// Writers built so far, keyed by the declared response type
+	private final ConcurrentMap<Type, ObjectWriter> writers = new ConcurrentHashMap<Type, ObjectWriter>();
+	
+	/**
+	 * This constructor creates a converter for one format
+	 * @param mapper the mapper for the format, for example one built on a SmileFactory
+	 * @param mediaType the media type of the format
+	 */
+	public RestDtoHttpMessageConverter(ObjectMapper mapper, String mediaType)
+	{
+		super(MediaType.parseMediaType(mediaType));
+		
+		// leave the response stream open for the container to close
+		this.mapper = mapper.copy().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz)
+	{
+		return RestDto.class.isAssignableFrom(clazz);
+	}
+	
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType)
+	{
+		// requests are read by the default converters
+		return false;
+	}
+	
+	@Override
+	protected boolean canRead(MediaType mediaType)
+	{
+		return false;
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException
+	{
+		throw new HttpMessageNotReadableException("RestDto responses are write only");
+	}
+
+	@Override
+	protected Object readInternal(Class<? extends Object> clazz, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException
+	{
+		throw new HttpMessageNotReadableException("RestDto responses are write only");
+	}
+
+	@Override
+	protected void writeInternal(Object dto, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException
+	{
+		// write with the writer for the declared type, falling back to the runtime class
+		final ObjectWriter writer = writerFor(type != null ? type : dto.getClass());
+		
+		// IF the data is shared by many responses, serialize it once per format and envelope and copy the bytes
+		if (dto instanceof RestDto && ((RestDto<?>) dto).getData() instanceof SharedList)
+		{
+			RestDto<?> rest = (RestDto<?>) dto;
+			byte[] bytes;
+			try 
+			{
+				bytes = ((SharedList<?>) rest.getData()).serialized(Arrays.asList(writer, rest.getCode(), rest.getMessage()), key -> {
+					try 
+					{
+						return writer.writeValueAsBytes(dto);
+					}
+					catch (JsonProcessingException e)
+					{
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			catch (UncheckedIOException e)
+			{
+				throw e.getCause();
+			}
+			outputMessage.getHeaders().setContentLength(bytes.length);
+			outputMessage.getBody().write(bytes);
+			return;
+		}
+		writer.writeValue(outputMessage.getBody(), dto);
+	}
+	
+	/**
+	 * This method returns the writer for a response type, building it on first use
+	 * @param type the declared response type, for example RestDto&lt;Order&gt;
+	 * @return the writer for the type
+	 */
+	public ObjectWriter writerFor(Type type)
+	{
+		ObjectWriter writer = writers.get(type);
+		if (writer == null)
+		{
+			writer = mapper.writerFor(mapper.getTypeFactory().constructType(type));
+			writers.putIfAbsent(type, writer);
+		}
+		return writer;
+	}
+}
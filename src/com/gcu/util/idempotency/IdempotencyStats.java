@@ -0,0 +1,50 @@
+package com.gcu.util.idempotency;
+
+public class IdempotencyStats
+{
+	private int entries;
+
+	private long claimed;
+
+	private long replayed;
+
+	private long coalesced;
+
+	private long rejected;
+
+	private long evictions;
+
+	public IdempotencyStats(int entries, long claimed, long replayed, long coalesced, long rejected, long evictions) {
+		super();
+		this.entries = entries;
+		this.claimed = claimed;
+		this.replayed = replayed;
+		this.coalesced = coalesced;
+		this.rejected = rejected;
+		this.evictions = evictions;
+	}
+
+	public int getEntries() {
+		return entries;
+	}
+
+	public long getClaimed() {
+		return claimed;
+	}
+
+	public long getReplayed() {
+		return replayed;
+	}
+
+	public long getCoalesced() {
+		return coalesced;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+}
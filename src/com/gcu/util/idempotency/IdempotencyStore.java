@@ -0,0 +1,232 @@
+package com.gcu.util.idempotency;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gcu.util.exception.IdempotencyKeyReusedException;
+
+/**
+ * The IdempotencyStore remembers the response to each request sent with an idempotency key, so a client that
+ * retries gets the first response again instead of repeating the write. The first request with a key claims it
+ * and does the work; a retry that arrives while the work is running waits for the same response instead of doing
+ * the work a second time. Responses are kept for a fixed time to live and the oldest keys are evicted once the store
+ * is full
+ * @author Josh Van de Walle
+ *
+ */
+public class IdempotencyStore
+{
+	// the most keys held before the oldest is evicted
+	private int maxEntries = 100000;
+
+	// how long a response is kept after it is stored
+	private long ttlNanos = TimeUnit.HOURS.toNanos(24);
+
+	// claims by key
+	private final ConcurrentHashMap<String, Claim> claims = new ConcurrentHashMap<String, Claim>();
+
+	// claims in the order they were made, oldest first, guarded by itself
+	private final ArrayDeque<Claim> order = new ArrayDeque<Claim>();
+
+	// counters
+	private final LongAdder claimed = new LongAdder();
+	private final LongAdder replayed = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * This method is used to set the most keys held
+	 * @param maxEntries the maximum number of keys
+	 */
+	public void setMaxEntries(int maxEntries)
+	{
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * This method is used to set how long a response is kept
+	 * @param ttlMillis the time to live in milliseconds
+	 */
+	public void setTtlMillis(long ttlMillis)
+	{
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+	}
+
+	/**
+	 * This method claims a key for a request, or finds the request that already claimed it
+	 * @param key the idempotency key, scoped by the caller to the endpoint
+	 * @param fingerprint identifies the request, so a key sent with a different request is refused
+	 * @return the claim; the caller does the work only if it is the owner, otherwise it answers with the claim's response
+	 * @throws IdempotencyKeyReusedException if the key was claimed by a different request
+	 */
+	public Claim claim(String key, String fingerprint)
+	{
+		// drop expired keys first so a full store makes room from the oldest
+		purge();
+
+		Claim created = new Claim(key, fingerprint);
+		while (true)
+		{
+			// IF the key is new the request owns it
+			Claim existing = claims.putIfAbsent(key, created);
+			if (existing == null)
+			{
+				synchronized (order)
+				{
+					order.addLast(created);
+				}
+				claimed.increment();
+				trim();
+				return created;
+			}
+
+			// an expired key is claimed afresh
+			if (existing.isExpired())
+			{
+				claims.remove(key, existing);
+				continue;
+			}
+
+			// a key is only answered for the request it was first sent with
+			if (!existing.fingerprint.equals(fingerprint))
+			{
+				rejected.increment();
+				throw new IdempotencyKeyReusedException("Idempotency key " + key + " was used for a different request");
+			}
+
+			// answer from the stored response, or wait for the request that is still working on it
+			if (existing.response.isDone())
+			{
+				replayed.increment();
+			}
+			else
+			{
+				coalesced.increment();
+			}
+			return new Claim(existing);
+		}
+	}
+
+	/**
+	 * This method stores the response of a claim and hands it to the requests waiting for it
+	 * @param claim the claim made by the request that did the work
+	 * @param response the response to keep
+	 */
+	public void complete(Claim claim, Object response)
+	{
+		claim.expiresAt = System.nanoTime() + ttlNanos;
+		claim.response.complete(response);
+	}
+
+	/**
+	 * This method gives up a claim so a retry does the work again, handing the response to the requests waiting
+	 * for it. Used when the work failed for a reason a retry may not meet, or never ran
+	 * @param claim the claim made by the request
+	 * @param response the response for the requests waiting on the claim
+	 */
+	public void release(Claim claim, Object response)
+	{
+		claims.remove(claim.key, claim);
+		claim.response.complete(response);
+	}
+
+	/**
+	 * This method returns the store counters
+	 * @return the idempotency statistics
+	 */
+	public IdempotencyStats getStats()
+	{
+		return new IdempotencyStats(claims.size(), claimed.sum(), replayed.sum(), coalesced.sum(), rejected.sum(), evictions.sum());
+	}
+
+	/**
+	 * This method drops the oldest keys while they are expired or already gone from the map
+	 */
+	private void purge()
+	{
+		synchronized (order)
+		{
+			for (Claim head = order.peekFirst(); head != null && (head.isExpired() || claims.get(head.key) != head); head = order.peekFirst())
+			{
+				order.pollFirst();
+				claims.remove(head.key, head);
+			}
+		}
+	}
+
+	/**
+	 * This method evicts the oldest keys while the store holds more than it may
+	 */
+	private void trim()
+	{
+		synchronized (order)
+		{
+			while (claims.size() > maxEntries && !order.isEmpty())
+			{
+				Claim head = order.pollFirst();
+				if (claims.remove(head.key, head))
+				{
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A key claimed by a request and the response it produced
+	 */
+	public static final class Claim
+	{
+		private final String key;
+		private final String fingerprint;
+		private final CompletableFuture<Object> response;
+		private final boolean owner;
+
+		// when the stored response expires, set once the response is stored
+		private volatile long expiresAt;
+
+		Claim(String key, String fingerprint)
+		{
+			this.key = key;
+			this.fingerprint = fingerprint;
+			this.response = new CompletableFuture<Object>();
+			this.owner = true;
+		}
+
+		// a view of a claim for a later request with the same key
+		Claim(Claim claim)
+		{
+			this.key = claim.key;
+			this.fingerprint = claim.fingerprint;
+			this.response = claim.response;
+			this.owner = false;
+		}
+
+		/**
+		 * This method tells whether the request that holds the claim must do the work
+		 * @return true for the request that made the claim
+		 */
+		public boolean isOwner()
+		{
+			return owner;
+		}
+
+		/**
+		 * This method returns the response of the request that did the work
+		 * @return the response, completed once the work is done
+		 */
+		public CompletableFuture<Object> getResponse()
+		{
+			return response;
+		}
+
+		boolean isExpired()
+		{
+			return response.isDone() && expiresAt != 0 && System.nanoTime() - expiresAt > 0;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.gcu.util.ingest;
+
+public class IngestionStats
+{
+	private boolean enabled;
+
+	private int depth;
+
+	private long lagMillis;
+
+	private long accepted;
+
+	private long written;
+
+	private long rejected;
+
+	private long batches;
+
+	private long journalBytes;
+
+	public IngestionStats(boolean enabled, int depth, long lagMillis, long accepted, long written, long rejected, long batches, long journalBytes) {
+		super();
+		this.enabled = enabled;
+		this.depth = depth;
+		this.lagMillis = lagMillis;
+		this.accepted = accepted;
+		this.written = written;
+		this.rejected = rejected;
+		this.batches = batches;
+		this.journalBytes = journalBytes;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	public long getAccepted() {
+		return accepted;
+	}
+
+	public long getWritten() {
+		return written;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getBatches() {
+		return batches;
+	}
+
+	public long getJournalBytes() {
+		return journalBytes;
+	}
+
+	public double getAverageBatchSize() {
+		return batches == 0 ? 0 : (double) (written + rejected) / batches;
+	}
+}
@@ -0,0 +1,541 @@
+package com.gcu.util.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gcu.data.OrdersDataInterface;
+import com.gcu.model.Order;
+import com.gcu.model.OrderEvent;
+import com.gcu.util.cache.CacheInterface;
+import com.gcu.util.events.OrderEventBus;
+import com.gcu.util.exception.DatabaseException;
+import com.gcu.util.money.Money;
+import com.gcu.util.routing.ReadRoutingContext;
+
+/**
+ * The OrderIngestionQueue accepts orders once they are in the local journal and writes them to the database on a
+ * background worker. The worker groups orders into batches of up to batchSize, waiting at most flushIntervalMillis
+ * after the oldest one, and commits each batch in one transaction. A batch with a bad order is rolled back and
+ * written one order at a time so only the bad order is rejected. While the database is unavailable the worker
+ * retries and orders stay in the journal, which is replayed on the next start. Each stored order is published to the
+ * change feed once its batch is written, with the ID it was stored with
+ * @author Josh Van de Walle
+ *
+ */
+public class OrderIngestionQueue implements InitializingBean, DisposableBean
+{
+	private static final Logger logger = LoggerFactory.getLogger(OrderIngestionQueue.class);
+
+	// settings
+	private boolean enabled;
+	private String journalDir = "journal";
+	private long segmentBytes = 64L * 1024 * 1024;
+	private boolean fsync = true;
+	private long flushIntervalMillis = 50;
+	private int batchSize = 500;
+	private int maxQueued = 100000;
+	private long retryMillis = 1000;
+
+	// where the orders go
+	private OrdersDataInterface service;
+	private PlatformTransactionManager transactionManager;
+	private CacheInterface<Order> cache;
+	private OrderEventBus events;
+
+	private OrderJournal journal;
+	private TransactionTemplate transactionTemplate;
+	private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>();
+	private Semaphore permits;
+	private final Object appendLock = new Object();
+	private Thread worker;
+	private volatile boolean running;
+
+	// the batch being written, for the depth and lag
+	private volatile List<Entry> inFlight = new ArrayList<Entry>();
+
+	// counters
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder written = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+
+	/**
+	 * This method enables write-behind ingestion. When disabled, orders are written to the database as they are placed
+	 * @param enabled true to acknowledge orders once they are journaled
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	/**
+	 * This method sets the directory of the journal
+	 * @param journalDir the journal directory
+	 */
+	public void setJournalDir(String journalDir)
+	{
+		this.journalDir = journalDir;
+	}
+
+	/**
+	 * This method sets the size at which the journal starts a new segment
+	 * @param segmentBytes the segment size in bytes
+	 */
+	public void setSegmentBytes(long segmentBytes)
+	{
+		this.segmentBytes = segmentBytes;
+	}
+
+	/**
+	 * This method sets whether orders are forced to disk before they are acknowledged
+	 * @param fsync false to trade durability across power loss for latency
+	 */
+	public void setFsync(boolean fsync)
+	{
+		this.fsync = fsync;
+	}
+
+	/**
+	 * This method sets how long the worker waits for a batch to fill after the oldest order in it arrived
+	 * @param flushIntervalMillis the flush interval in milliseconds
+	 */
+	public void setFlushIntervalMillis(long flushIntervalMillis)
+	{
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	/**
+	 * This method sets the most orders committed in one transaction
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * This method sets the most orders waiting for the database before new orders are refused
+	 * @param maxQueued the queue capacity
+	 */
+	public void setMaxQueued(int maxQueued)
+	{
+		this.maxQueued = maxQueued;
+	}
+
+	/**
+	 * This method sets how long the worker waits before retrying a batch the database failed to take
+	 * @param retryMillis the retry delay in milliseconds
+	 */
+	public void setRetryMillis(long retryMillis)
+	{
+		this.retryMillis = retryMillis;
+	}
+
+	/**
+	 * This method sets the data service the orders are written to
+	 * @param service the orders data service
+	 */
+	public void setService(OrdersDataInterface service)
+	{
+		this.service = service;
+	}
+
+	/**
+	 * This method sets the transaction manager each batch is committed with
+	 * @param transactionManager the transaction manager of the data source
+	 */
+	public void setTransactionManager(PlatformTransactionManager transactionManager)
+	{
+		this.transactionManager = transactionManager;
+	}
+
+	/**
+	 * This method sets the cache invalidated after each batch
+	 * @param cache the orders cache
+	 */
+	public void setCache(CacheInterface<Order> cache)
+	{
+		this.cache = cache;
+	}
+
+	/**
+	 * This method sets the change feed the stored orders are published to
+	 * @param events the order change feed
+	 */
+	public void setEvents(OrderEventBus events)
+	{
+		this.events = events;
+	}
+
+	/**
+	 * This method tells whether orders are acknowledged before they reach the database
+	 * @return true if write-behind ingestion is enabled
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws IOException
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		// requeue the orders accepted before the last shutdown but not yet written
+		journal = new OrderJournal(new File(journalDir), segmentBytes, fsync);
+		List<OrderJournal.Record> pending = journal.open();
+		long now = System.nanoTime();
+		for (OrderJournal.Record record : pending)
+		{
+			queue.add(new Entry(record.getSequence(), record.getOrder(), now));
+		}
+		permits = new Semaphore(maxQueued - pending.size());
+		if (!pending.isEmpty())
+		{
+			logger.info("Recovered {} orders from the journal in {}", pending.size(), journalDir);
+		}
+
+		// start writing
+		running = true;
+		worker = new Thread(this::drain, "order-ingestion");
+		worker.start();
+	}
+
+	/**
+	 * This method journals orders and queues them for the database. It returns once the orders are durable
+	 * @param orders the orders to accept
+	 * @throws IOException if the journal cannot be written
+	 * @throws RejectedExecutionException if the queue is full
+	 */
+	public void submit(List<Order> orders) throws IOException
+	{
+		// refuse the orders up front rather than journal what cannot be queued
+		if (!permits.tryAcquire(orders.size()))
+		{
+			throw new RejectedExecutionException("Order ingestion queue is full");
+		}
+
+		// journal and queue in the same order so the worker drains in sequence
+		int appended = 0;
+		try
+		{
+			synchronized (appendLock)
+			{
+				for (Order order : orders)
+				{
+					long sequence = journal.append(order);
+					queue.add(new Entry(sequence, order, System.nanoTime()));
+					appended++;
+				}
+			}
+		}
+		finally
+		{
+			permits.release(orders.size() - appended);
+		}
+
+		// share an fsync with the other requests appending now
+		journal.sync();
+		accepted.add(orders.size());
+	}
+
+	/**
+	 * This method returns the queue depth, the lag and the counters
+	 * @return the ingestion statistics
+	 */
+	public IngestionStats getStats()
+	{
+		if (!enabled)
+		{
+			return new IngestionStats(false, 0, 0, 0, 0, 0, 0, 0);
+		}
+
+		// the lag is the age of the oldest order not yet written
+		List<Entry> batch = inFlight;
+		Entry oldest = batch.isEmpty() ? queue.peek() : batch.get(0);
+		long lagMillis = oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queued);
+		return new IngestionStats(true, queue.size() + batch.size(), lagMillis, accepted.sum(), written.sum(), rejected.sum(),
+				batches.sum(), journal.size());
+	}
+
+	@Override
+	public void destroy() throws Exception
+	{
+		if (worker == null)
+		{
+			return;
+		}
+
+		// let the worker write what is queued, then close the journal. The worker is not interrupted, since
+		// an interrupt during a JDBC call can break the connection
+		running = false;
+		worker.join(TimeUnit.SECONDS.toMillis(30));
+		journal.close();
+	}
+
+	/**
+	 * This method runs on the worker, writing batches until shutdown empties the queue
+	 */
+	private void drain()
+	{
+		// read back from the primary, which already has what this worker wrote
+		ReadRoutingContext.bind(new ReadRoutingContext(true));
+		List<Entry> batch = new ArrayList<Entry>(batchSize);
+		while (running || !queue.isEmpty())
+		{
+			try
+			{
+				// wait for an order
+				Entry first = running ? queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS) : queue.poll();
+				if (first == null)
+				{
+					continue;
+				}
+				batch.add(first);
+
+				// gather more until the batch is full or the oldest order has waited the flush interval
+				long deadline = first.queued + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+				while (batch.size() < batchSize)
+				{
+					queue.drainTo(batch, batchSize - batch.size());
+					long wait = deadline - System.nanoTime();
+					if (batch.size() >= batchSize || wait <= 0 || !running)
+					{
+						break;
+					}
+					Entry next = queue.poll(wait, TimeUnit.NANOSECONDS);
+					if (next == null)
+					{
+						break;
+					}
+					batch.add(next);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				// shutdown; write what was gathered and whatever is still queued
+			}
+
+			// stop if the database is down at shutdown; the journal keeps the rest
+			if (!batch.isEmpty() && !write(batch))
+			{
+				return;
+			}
+			batch = new ArrayList<Entry>(batchSize);
+		}
+	}
+
+	/**
+	 * This method writes a batch, retrying while the database is unavailable, and then checkpoints the journal
+	 * @param batch the orders to write, in sequence order
+	 * @return false if the batch was left in the journal because of shutdown
+	 */
+	private boolean write(List<Entry> batch)
+	{
+		inFlight = batch;
+		List<Order> stored;
+		while (true)
+		{
+			try
+			{
+				stored = writeOnce(batch);
+				break;
+			}
+			catch (RuntimeException e)
+			{
+				if (!running)
+				{
+					logger.warn("Leaving {} orders in the journal at shutdown: {}", batch.size(), e.toString());
+					return false;
+				}
+				logger.warn("Writing {} orders failed, retrying in {} ms: {}", batch.size(), retryMillis, e.toString());
+				try
+				{
+					Thread.sleep(retryMillis);
+				}
+				catch (InterruptedException interrupted)
+				{
+					// shutdown; make one more attempt
+				}
+			}
+		}
+
+		// the batch is in the database, so the journal no longer needs it
+		try
+		{
+			journal.checkpoint(batch.get(batch.size() - 1).sequence);
+		}
+		catch (IOException e)
+		{
+			// the orders are replayed on the next start and recognised as already written
+			logger.error("Cannot checkpoint the order journal", e);
+		}
+		inFlight = new ArrayList<Entry>();
+		permits.release(batch.size());
+		batches.increment();
+
+		// the cached list of orders is stale
+		if (cache != null)
+		{
+			cache.invalidateAll();
+		}
+
+		// tell subscribers about the orders now in the database, leaving out the refused ones
+		for (int i = 0; events != null && i < stored.size(); i++)
+		{
+			events.publish(OrderEvent.Type.PLACED, stored.get(i));
+		}
+		return true;
+	}
+
+	/**
+	 * This method takes away the IDs of orders whose rows were rolled back
+	 * @param orders the orders of the rolled back batch
+	 */
+	private static void clearIds(List<Order> orders)
+	{
+		for (Order order : orders)
+		{
+			order.setId(0);
+		}
+	}
+
+	/**
+	 * This method writes a batch in one transaction, falling back to one order at a time if an order is refused
+	 * @param batch the orders to write
+	 * @return the orders of the batch that are stored, carrying their IDs
+	 */
+	private List<Order> writeOnce(List<Entry> batch)
+	{
+		final List<Order> orders = new ArrayList<Order>(batch.size());
+		for (Entry entry : batch)
+		{
+			orders.add(entry.order);
+		}
+
+		// commit the whole batch at once
+		Boolean committed;
+		try
+		{
+			committed = transactionTemplate.execute(status -> {
+				for (boolean created : service.createAll(orders))
+				{
+					if (!created)
+					{
+						status.setRollbackOnly();
+						return false;
+					}
+				}
+				return true;
+			});
+		}
+		catch (RuntimeException e)
+		{
+			// the rows were rolled back, so the IDs the orders were given no longer exist
+			clearIds(orders);
+			throw e;
+		}
+		if (Boolean.TRUE.equals(committed))
+		{
+			written.add(orders.size());
+			return orders;
+		}
+		clearIds(orders);
+
+		// find the refused orders by writing the batch one order at a time
+		List<Order> stored = new ArrayList<Order>(orders.size());
+		for (Order order : orders)
+		{
+			try
+			{
+				if (service.create(order))
+				{
+					written.increment();
+					stored.add(order);
+				}
+				else
+				{
+					reject(order, "no row inserted");
+				}
+			}
+			catch (DatabaseException e)
+			{
+				// anything but a constraint violation means the database is unavailable, so retry the batch later
+				if (!(e.getCause() instanceof DataIntegrityViolationException))
+				{
+					throw e;
+				}
+
+				// an order replayed from the journal may already have been written before a crash
+				Order existing = service.findByOrderNo(order.getOrderNo());
+				if (existing != null && sameOrder(existing, order))
+				{
+					written.increment();
+					stored.add(existing);
+				}
+				else
+				{
+					reject(order, e.getCause().getMessage());
+				}
+			}
+		}
+		return stored;
+	}
+
+	/**
+	 * This method records an order the database refused. The client was already told it was accepted
+	 * @param order the refused order
+	 * @param reason why it was refused
+	 */
+	private void reject(Order order, String reason)
+	{
+		rejected.increment();
+		logger.error("Rejected journaled order {} ({}, {}, {}): {}", order.getOrderNo(), order.getProductName(), Money.format(order.getPriceCents()),
+				order.getQuantity(), reason);
+	}
+
+	/**
+	 * This method checks whether a stored order has the contents of a journaled one
+	 */
+	private static boolean sameOrder(Order stored, Order journaled)
+	{
+		return stored.getProductName().equals(journaled.getProductName()) && stored.getPriceCents() == journaled.getPriceCents()
+				&& stored.getQuantity() == journaled.getQuantity();
+	}
+
+	/**
+	 * A queued order
+	 */
+	private static final class Entry
+	{
+		final long sequence;
+		final Order order;
+		final long queued;
+
+		Entry(long sequence, Order order, long queued)
+		{
+			this.sequence = sequence;
+			this.order = order;
+			this.queued = queued;
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package com.gcu.util.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gcu.model.Order;
+
+/**
+ * The OrderJournal is an append-only file log of accepted orders. Each record holds a sequence number, the order
+ * as JSON and a CRC, so a record torn by a crash is detected and cut off on recovery. The log is split into
+ * segments that are deleted once every order in them has been written to the database, as recorded by the
+ * checkpoint file. Concurrent appenders share one fsync
+ * @author Josh Van de Walle
+ *
+ */
+public class OrderJournal
+{
+	private static final Logger logger = LoggerFactory.getLogger(OrderJournal.class);
+
+	// record layout: payload length, sequence number, payload, CRC of sequence number and payload
+	private static final int HEADER_BYTES = 4 + 8;
+	private static final int TRAILER_BYTES = 4;
+
+	// largest payload accepted when reading, so a corrupt length is not mistaken for a huge record
+	private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+
+	private static final String SEGMENT_PREFIX = "orders-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final String CHECKPOINT = "checkpoint";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final ObjectWriter ORDER_WRITER = MAPPER.writerFor(Order.class);
+	private static final ObjectReader ORDER_READER = MAPPER.readerFor(Order.class);
+
+	private final File directory;
+	private final long segmentBytes;
+	private final boolean fsync;
+
+	// live segments, oldest first; the last one is appended to
+	private final Deque<Segment> segments = new ArrayDeque<Segment>();
+	private FileChannel active;
+	private FileChannel checkpointChannel;
+
+	// next sequence number and the last one written to the database
+	private long nextSequence = 1;
+	private long checkpoint;
+
+	// bytes appended since opening, and how many of them are known to be on disk
+	private long written;
+	private final Object syncLock = new Object();
+	private volatile long synced;
+
+	/**
+	 * This constructor describes a journal without opening it
+	 * @param directory the directory holding the segments and the checkpoint
+	 * @param segmentBytes the size at which a new segment is started
+	 * @param fsync true to force appends to disk before they are acknowledged
+	 */
+	public OrderJournal(File directory, long segmentBytes, boolean fsync)
+	{
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.fsync = fsync;
+	}
+
+	/**
+	 * This method opens the journal, cutting off any torn record at the end of the log
+	 * @return the orders accepted but not yet written to the database, oldest first
+	 * @throws IOException if the journal cannot be read or created
+	 */
+	public synchronized List<Record> open() throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Cannot create journal directory " + directory);
+		}
+
+		// read the checkpoint
+		checkpointChannel = FileChannel.open(new File(directory, CHECKPOINT).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		if (checkpointChannel.read(buffer, 0) == 8)
+		{
+			checkpoint = buffer.getLong(0);
+		}
+		nextSequence = checkpoint + 1;
+
+		// replay the segments in order
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+		Arrays.sort(files);
+		List<Record> pending = new ArrayList<Record>();
+		for (File file : files)
+		{
+			Segment segment = new Segment(file);
+			long valid = read(segment, pending);
+
+			// cut off a torn tail so new records follow the last good one
+			if (valid < file.length())
+			{
+				logger.warn("Truncating journal segment {} from {} to {} bytes", file, file.length(), valid);
+				try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE))
+				{
+					channel.truncate(valid);
+				}
+			}
+			segments.add(segment);
+		}
+
+		// drop segments written to the database before the last shutdown, then append to the newest
+		deleteDrained();
+		if (segments.isEmpty())
+		{
+			roll();
+		}
+		else
+		{
+			Segment last = segments.getLast();
+			active = FileChannel.open(last.file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		return pending;
+	}
+
+	/**
+	 * This method appends an order to the journal. The order is not durable until sync() returns
+	 * @param order the accepted order
+	 * @return the sequence number of the order
+	 * @throws IOException if the journal cannot be written
+	 */
+	public synchronized long append(Order order) throws IOException
+	{
+		// roll to a new segment once the current one is full
+		if (active.size() >= segmentBytes)
+		{
+			roll();
+		}
+
+		// build the record
+		long sequence = nextSequence++;
+		byte[] payload = ORDER_WRITER.writeValueAsBytes(order);
+		byte[] bytes = new byte[HEADER_BYTES + payload.length + TRAILER_BYTES];
+		ByteBuffer.wrap(bytes).putInt(payload.length).putLong(sequence).put(payload).putInt(crc(sequence, payload));
+		ByteBuffer record = ByteBuffer.wrap(bytes);
+
+		// write it
+		while (record.hasRemaining())
+		{
+			active.write(record);
+		}
+		written += bytes.length;
+		segments.getLast().last = sequence;
+		return sequence;
+	}
+
+	/**
+	 * This method forces every append made so far to disk. Appenders that call it together share one fsync
+	 * @throws IOException if the journal cannot be forced
+	 */
+	public void sync() throws IOException
+	{
+		if (!fsync)
+		{
+			return;
+		}
+		long target;
+		synchronized (this)
+		{
+			target = written;
+		}
+
+		// one thread forces for everyone waiting; the others find their appends already covered
+		synchronized (syncLock)
+		{
+			if (synced >= target)
+			{
+				return;
+			}
+			long upTo;
+			FileChannel channel;
+			synchronized (this)
+			{
+				upTo = written;
+				channel = active;
+			}
+			try
+			{
+				channel.force(false);
+			}
+			catch (ClosedChannelException e)
+			{
+				// the segment was rolled, which forces it before closing
+			}
+			synced = upTo;
+		}
+	}
+
+	/**
+	 * This method records that every order up to a sequence number is in the database, deleting segments that
+	 * are no longer needed
+	 * @param sequence the last sequence number written to the database
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	public synchronized void checkpoint(long sequence) throws IOException
+	{
+		if (sequence <= checkpoint)
+		{
+			return;
+		}
+		checkpoint = sequence;
+		checkpointChannel.write(ByteBuffer.allocate(8).putLong(0, sequence), 0);
+		if (fsync)
+		{
+			checkpointChannel.force(false);
+		}
+		deleteDrained();
+	}
+
+	/**
+	 * This method returns the size of the live segments
+	 * @return the journal size in bytes
+	 */
+	public synchronized long size()
+	{
+		long size = 0;
+		for (Segment segment : segments)
+		{
+			size += segment.file.length();
+		}
+		return size;
+	}
+
+	/**
+	 * This method closes the journal
+	 * @throws IOException if the journal cannot be forced or closed
+	 */
+	public synchronized void close() throws IOException
+	{
+		if (active != null)
+		{
+			active.force(false);
+			active.close();
+			active = null;
+		}
+		if (checkpointChannel != null)
+		{
+			checkpointChannel.close();
+			checkpointChannel = null;
+		}
+	}
+
+	/**
+	 * This method starts a new segment, forcing and closing the current one
+	 * @throws IOException if the segment cannot be created
+	 */
+	private void roll() throws IOException
+	{
+		if (active != null)
+		{
+			active.force(false);
+			active.close();
+		}
+		Segment segment = new Segment(new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX)));
+		active = FileChannel.open(segment.file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		segments.add(segment);
+	}
+
+	/**
+	 * This method deletes the segments, other than the one being appended to, whose orders are all in the database
+	 */
+	private void deleteDrained()
+	{
+		while (segments.size() > 1 && segments.getFirst().last <= checkpoint)
+		{
+			Segment drained = segments.removeFirst();
+			if (!drained.file.delete())
+			{
+				logger.warn("Cannot delete drained journal segment {}", drained.file);
+			}
+		}
+	}
+
+	/**
+	 * This method reads the valid records of a segment
+	 * @param segment the segment to read
+	 * @param pending the list the records after the checkpoint are added to
+	 * @return the length of the valid part of the segment
+	 * @throws IOException if the segment cannot be read
+	 */
+	private long read(Segment segment, List<Record> pending) throws IOException
+	{
+		long valid = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file))))
+		{
+			while (true)
+			{
+				// a short or corrupt record ends the valid part of the segment
+				int length = in.readInt();
+				if (length < 0 || length > MAX_PAYLOAD_BYTES)
+				{
+					break;
+				}
+				long sequence = in.readLong();
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				if (in.readInt() != crc(sequence, payload))
+				{
+					break;
+				}
+				valid += HEADER_BYTES + length + TRAILER_BYTES;
+				segment.last = sequence;
+				nextSequence = Math.max(nextSequence, sequence + 1);
+				if (sequence > checkpoint)
+				{
+					pending.add(new Record(sequence, ORDER_READER.readValue(payload)));
+				}
+			}
+		}
+		catch (EOFException e)
+		{
+			// end of the segment, possibly in the middle of a torn record
+		}
+		return valid;
+	}
+
+	/**
+	 * This method computes the CRC of a record
+	 */
+	private static int crc(long sequence, byte[] payload)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(8).putLong(sequence).array());
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * A segment file and the last sequence number in it
+	 */
+	private static final class Segment
+	{
+		final File file;
+		long last;
+
+		Segment(File file)
+		{
+			this.file = file;
+		}
+	}
+
+	/**
+	 * An order read back from the journal
+	 */
+	public static final class Record
+	{
+		private final long sequence;
+		private final Order order;
+
+		Record(long sequence, Order order)
+		{
+			this.sequence = sequence;
+			this.order = order;
+		}
+
+		public long getSequence()
+		{
+			return sequence;
+		}
+
+		public Order getOrder()
+		{
+			return order;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.gcu.util.interceptor;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.gcu.util.admission.ConcurrencyLimiter;
+import com.gcu.util.admission.RateLimiter;
+import com.gcu.util.exception.AdmissionRejectedException;
+
+/**
+ * The AdmissionControlInterceptor turns requests away before they reach a handler: with 429 when the client has
+ * sent more than its rate allows, and with 503 when as many requests are running as the concurrency limiter
+ * admits. A client is known by its API key header if the key is one of the configured keys, and by its address
+ * otherwise, so a client cannot get a fresh rate by sending a new key. An admitted request holds its place until
+ * its response is written, including the async dispatch, and its latency adapts the limit. Streamed responses are
+ * only rate limited: they run on their own executor, and their latency says nothing about the service's capacity
+ * @author Josh Van de Walle
+ *
+ */
+public class AdmissionControlInterceptor extends HandlerInterceptorAdapter
+{
+	// request attribute holding the time an admitted request started
+	private static final String ADMITTED = AdmissionControlInterceptor.class.getName() + ".admitted";
+
+	// The header that names the client's API key
+	private String apiKeyHeader = "X-API-Key";
+
+	// The API keys a client may be known by; any other key is ignored
+	private Set<String> apiKeys = Collections.emptySet();
+
+	// The per-client rate limiter, or null for none
+	private RateLimiter rateLimiter;
+
+	// The adaptive concurrency limiter, or null for none
+	private ConcurrencyLimiter concurrencyLimiter;
+
+	public void setApiKeyHeader(String apiKeyHeader) {
+		this.apiKeyHeader = apiKeyHeader;
+	}
+
+	public void setApiKeys(String apiKeys) {
+		this.apiKeys = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(apiKeys));
+	}
+
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+	{
+		// a request is admitted once, not again on the dispatch that writes its async response
+		if (request.getDispatcherType() == DispatcherType.ASYNC)
+		{
+			return true;
+		}
+
+		// turn away a client over its rate
+		if (rateLimiter != null && rateLimiter.isEnabled())
+		{
+			long waitMillis = rateLimiter.tryAcquire(client(request));
+			if (waitMillis > 0)
+			{
+				throw new AdmissionRejectedException(429, "Too Many Requests", (waitMillis + 999) / 1000);
+			}
+		}
+
+		// turn away a request the service has no room for
+		if (concurrencyLimiter != null && concurrencyLimiter.isEnabled() && !isStream(handler))
+		{
+			if (!concurrencyLimiter.tryAcquire())
+			{
+				throw new AdmissionRejectedException(503, "Service Unavailable", 1);
+			}
+			request.setAttribute(ADMITTED, System.nanoTime());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+	{
+		// give up the request's place, once, when its response is complete
+		Object admitted = request.getAttribute(ADMITTED);
+		if (admitted != null)
+		{
+			request.removeAttribute(ADMITTED);
+			concurrencyLimiter.release(System.nanoTime() - (Long) admitted, response.getStatus() == HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+	}
+
+	/**
+	 * This method identifies the client of a request
+	 * @param request the request
+	 * @return the API key if it is a configured key, or the address otherwise
+	 */
+	private String client(HttpServletRequest request)
+	{
+		String key = request.getHeader(apiKeyHeader);
+		return key != null && apiKeys.contains(key) ? "key:" + key : "ip:" + request.getRemoteAddr();
+	}
+
+	/**
+	 * This method tells whether a handler streams its response
+	 * @param handler the handler of the request
+	 * @return true if the handler returns a streamed body or an emitter
+	 */
+	private static boolean isStream(Object handler)
+	{
+		if (!(handler instanceof HandlerMethod))
+		{
+			return false;
+		}
+		Class<?> type = ((HandlerMethod) handler).getReturnType().getParameterType();
+		return StreamingResponseBody.class.isAssignableFrom(type) || ResponseBodyEmitter.class.isAssignableFrom(type);
+	}
+}
@@ -1,10 +1,15 @@
 package com.gcu.util.interceptor;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
@@ -15,6 +20,24 @@ public class Interceptor {
 	
 	// Logger used to monitor application usage
 	private static final Logger logger = LoggerFactory.getLogger(Interceptor.class);
+	
+	// Log messages built once per advised method
+	private final ConcurrentHashMap<Method, Messages> messages = new ConcurrentHashMap<Method, Messages>();
+	
+	// Nesting depth and sampling decision of the trace running on each thread
+	private final ThreadLocal<Trace> traces = ThreadLocal.withInitial(Trace::new);
+	
+	// Fraction of traces to log, from 0 (none) to 1 (all)
+	private double sampleRate = 1.0;
+	
+	/**
+	 * This method is used to set the fraction of traces to log. Exceptions are always logged
+	 * @param sampleRate the fraction of traces to log, from 0 (none) to 1 (all)
+	 */
+	public void setSampleRate(double sampleRate)
+	{
+		this.sampleRate = sampleRate;
+	}
 
 	/**
 	 * This advice method execute before entering a controller, business service, or data service method
@@ -23,10 +46,18 @@ public class Interceptor {
 	@Before("execution(* com.gcu.service.*.*(..)) || execution(* com.gcu.business.*.*(..)) || execution(* com.gcu.data.*.*(..))")
     public void before(JoinPoint joinPoint) 
 	{
-		// read method signature for inclusion in logs
-		String signature = joinPoint.getSignature().toString();
+		// decide whether to log at the outermost call so a trace is logged whole or not at all
+		Trace trace = traces.get();
+		if (trace.depth++ == 0)
+		{
+			trace.sampled = sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+		}
+		
 		// log method entry
-        logger.info("Entering " + signature.substring(signature.indexOf(" ") + 1));
+		if (trace.sampled && logger.isInfoEnabled())
+		{
+			logger.info(messagesFor(joinPoint).entering);
+		}
     }
 	
 	/**
@@ -37,20 +68,29 @@ public class Interceptor {
 	@AfterReturning(value = "execution(* com.gcu.service.*.*(..)) || execution(* com.gcu.business.*.*(..)) || execution(* com.gcu.data.*.*(..))", returning = "result")
     public void afterReturning(JoinPoint joinPoint, Object result) 
 	{
-		// read method signature for inclusion in logs
-		String signature = joinPoint.getSignature().toString();
+		// skip traces that were not sampled
+		if (!exit())
+		{
+			return;
+		}
 		
 		// if the method return value is not null
 		if (result != null)
 		{
 	        // log the happy path execution
-	        logger.info("Exiting " + signature.substring(signature.indexOf(" ") + 1) + " after successful execution");
+			if (logger.isInfoEnabled())
+			{
+				logger.info(messagesFor(joinPoint).exited);
+			}
 		}
 		
 		else 
 		{
 			// log the null return
-	        logger.warn("Exiting " + signature.substring(signature.indexOf(" ") + 1) + " with null");
+			if (logger.isWarnEnabled())
+			{
+				logger.warn(messagesFor(joinPoint).exitedWithNull);
+			}
 		}
     }
 	
@@ -60,11 +100,72 @@ public class Interceptor {
 	 * @param e the exception thrown
 	 */
 	@AfterThrowing(value = "execution(* com.gcu.service.*.*(..)) || execution(* com.gcu.business.*.*(..)) || execution(* com.gcu.data.*.*(..))", throwing = "e")
-    public void afterThrowing(JoinPoint joinPoint, Exception e) 
+    public void afterThrowing(JoinPoint joinPoint, Throwable e) 
 	{
-		// read method signature for inclusion in logs
-		String signature = joinPoint.getSignature().toString();
-        //log the exception
-        logger.error("Exiting " + signature.substring(signature.indexOf(" ") + 1) + " with exception of type: " + e.getClass() + " and message: " + e.getMessage());
+		// close the call, then log the exception whether or not the trace was sampled
+		exit();
+		logger.error("{} with exception of type: {} and message: {}", messagesFor(joinPoint).exiting, e.getClass(), e.getMessage());
     }
+	
+	/**
+	 * This method closes the innermost call of the current trace
+	 * @return whether the trace was sampled
+	 */
+	private boolean exit()
+	{
+		Trace trace = traces.get();
+		boolean sampled = trace.sampled;
+		if (--trace.depth <= 0)
+		{
+			trace.depth = 0;
+		}
+		return sampled;
+	}
+	
+	/**
+	 * This method finds the log messages of an advised method, building them the first time the method is seen
+	 * @param joinPoint the execution instance of the advice for the pointcut
+	 * @return the log messages of the method
+	 */
+	private Messages messagesFor(JoinPoint joinPoint)
+	{
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		Messages cached = messages.get(method);
+		if (cached == null)
+		{
+			// read method signature for inclusion in logs
+			String signature = joinPoint.getSignature().toString();
+			cached = new Messages(signature.substring(signature.indexOf(" ") + 1));
+			messages.putIfAbsent(method, cached);
+		}
+		return cached;
+	}
+	
+	/**
+	 * The log messages of one advised method
+	 */
+	private static final class Messages
+	{
+		final String entering;
+		final String exiting;
+		final String exited;
+		final String exitedWithNull;
+		
+		Messages(String signature)
+		{
+			entering = "Entering " + signature;
+			exiting = "Exiting " + signature;
+			exited = exiting + " after successful execution";
+			exitedWithNull = exiting + " with null";
+		}
+	}
+	
+	/**
+	 * The state of the trace running on one thread
+	 */
+	private static final class Trace
+	{
+		int depth;
+		boolean sampled;
+	}
 }
@@ -0,0 +1,62 @@
+package com.gcu.util.interceptor;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.annotation.Configuration;
+
+import com.gcu.util.RestDto;
+import com.gcu.util.metrics.MethodMetrics;
+import com.gcu.util.metrics.MetricsRegistry;
+
+@Aspect
+@Configuration
+public class MetricsInterceptor {
+	
+	// Registry the measurements are recorded in
+	private MetricsRegistry registry;
+	
+	/**
+	 * This method is used to set the registry the measurements are recorded in
+	 * @param registry the metrics registry
+	 */
+	public void setRegistry(MetricsRegistry registry)
+	{
+		this.registry = registry;
+	}
+
+	/**
+	 * This advice method times a controller, business service, or data service method and counts its failures.
+	 * A call fails when it throws or when it returns a DTO with a server error code. A handler that answers later,
+	 * on another thread, is timed only while it submits the work, under a name ending in .submit
+	 * @param joinPoint the execution instance of the advice for the pointcut
+	 * @return the return value of the method
+	 * @throws Throwable whatever the method throws
+	 */
+	@Around("execution(* com.gcu.service.*.*(..)) || execution(* com.gcu.business.*.*(..)) || execution(* com.gcu.data.*.*(..))")
+	public Object measure(ProceedingJoinPoint joinPoint) throws Throwable
+	{
+		// skip measuring until a registry is set
+		if (registry == null)
+		{
+			return joinPoint.proceed();
+		}
+		
+		MethodMetrics metrics = registry.forMethod(((MethodSignature) joinPoint.getSignature()).getMethod(), joinPoint.getTarget().getClass());
+		long start = System.nanoTime();
+		boolean failed = true;
+		try 
+		{
+			// run the method and check for error responses
+			Object result = joinPoint.proceed();
+			failed = result instanceof RestDto && ((RestDto<?>) result).getCode() >= 500;
+			return result;
+		}
+		finally 
+		{
+			// record the call
+			metrics.record(System.nanoTime() - start, failed);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.gcu.util.interceptor;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.context.annotation.Configuration;
+
+import com.gcu.util.routing.ReadRoutingContext;
+
+@Aspect
+@Configuration
+public class ReadRoutingInterceptor {
+
+	/**
+	 * This advice method marks a data service read so its statements may run on a read replica
+	 * @param joinPoint the execution instance of the advice for the pointcut
+	 * @return the return value of the method
+	 * @throws Throwable whatever the method throws
+	 */
+	@Around("execution(* com.gcu.data.*.find*(..)) || execution(* com.gcu.data.*.stream*(..)) || execution(* com.gcu.data.*.summarize*(..))")
+	public Object read(ProceedingJoinPoint joinPoint) throws Throwable
+	{
+		ReadRoutingContext.beginRead();
+		try
+		{
+			return joinPoint.proceed();
+		}
+		finally
+		{
+			ReadRoutingContext.endRead();
+		}
+	}
+
+	/**
+	 * This advice method marks a data service write, so the rest of the request reads from the primary
+	 * @param joinPoint the execution instance of the advice for the pointcut
+	 */
+	@Before("execution(* com.gcu.data.*.create*(..)) || execution(* com.gcu.data.*.update*(..)) || execution(* com.gcu.data.*.delete*(..))")
+	public void write(JoinPoint joinPoint)
+	{
+		ReadRoutingContext.written();
+	}
+}
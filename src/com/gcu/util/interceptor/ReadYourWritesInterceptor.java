@@ -0,0 +1,124 @@
+package com.gcu.util.interceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.gcu.util.routing.ReadRoutingContext;
+import com.gcu.util.routing.ReplicaRoutingDataSource;
+
+/**
+ * The ReadYourWritesInterceptor starts the read routing context of each request. After a request writes, the
+ * response carries a cookie that keeps the session's reads on the primary for a window long enough to cover
+ * replica lag, so a client always sees its own writes. Other sessions keep reading from the replicas
+ * @author Josh Van de Walle
+ *
+ */
+public class ReadYourWritesInterceptor extends HandlerInterceptorAdapter
+{
+	// request attribute holding the routing context across async dispatches
+	private static final String CONTEXT = ReadYourWritesInterceptor.class.getName() + ".context";
+
+	// cookie holding the time until which the session reads from the primary
+	private static final String COOKIE = "primaryUntil";
+
+	// How long a session reads from the primary after it writes, 0 to read from replicas right away
+	private long windowMillis;
+	
+	// The data source routing reads, which has nothing to do without replicas
+	private ReplicaRoutingDataSource routing;
+
+	/**
+	 * This method is used to set how long a session reads from the primary after it writes
+	 * @param windowMillis the window in milliseconds, at least the expected replica lag
+	 */
+	public void setWindowMillis(long windowMillis)
+	{
+		this.windowMillis = windowMillis;
+	}
+
+	/**
+	 * This method is used to set the data source routing reads
+	 * @param routing the routing data source
+	 */
+	public void setRouting(ReplicaRoutingDataSource routing)
+	{
+		this.routing = routing;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+	{
+		// IF every read goes to the primary anyway, there is nothing to track
+		if (windowMillis <= 0 || routing == null || !routing.hasReplicas())
+		{
+			return true;
+		}
+		
+		ReadRoutingContext context = (ReadRoutingContext) request.getAttribute(CONTEXT);
+
+		// IF this is the first dispatch, start the context from the session cookie
+		if (context == null)
+		{
+			context = new ReadRoutingContext(pinned(request));
+			request.setAttribute(CONTEXT, context);
+		}
+
+		// IF this is the dispatch that writes the response of a request that wrote, pin the session to the primary
+		else if (request.getDispatcherType() == DispatcherType.ASYNC && context.hasWritten())
+		{
+			Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis() + windowMillis));
+			cookie.setMaxAge((int) Math.max(1, (windowMillis + 999) / 1000));
+			cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+			cookie.setHttpOnly(true);
+			response.addCookie(cookie);
+		}
+		ReadRoutingContext.bind(context);
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler)
+	{
+		// the work continues on another thread, which binds the context itself
+		ReadRoutingContext.bind(null);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+	{
+		ReadRoutingContext.bind(null);
+	}
+
+	/**
+	 * This method checks whether the session wrote within the window
+	 * @param request the request carrying the session cookie
+	 * @return true if the session must read from the primary
+	 */
+	private static boolean pinned(HttpServletRequest request)
+	{
+		Cookie[] cookies = request.getCookies();
+		if (cookies == null)
+		{
+			return false;
+		}
+		for (Cookie cookie : cookies)
+		{
+			if (COOKIE.equals(cookie.getName()))
+			{
+				try
+				{
+					return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+}
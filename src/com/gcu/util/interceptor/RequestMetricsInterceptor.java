@@ -0,0 +1,55 @@
+package com.gcu.util.interceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.gcu.util.metrics.MetricsRegistry;
+
+/**
+ * The RequestMetricsInterceptor times whole requests, including response serialization, so the time spent
+ * outside the controller method can be told apart from the time spent inside it
+ * @author Josh Van de Walle
+ *
+ */
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter 
+{
+	// request attribute holding the request start time
+	private static final String START = RequestMetricsInterceptor.class.getName() + ".start";
+	
+	// Registry the measurements are recorded in
+	private MetricsRegistry registry;
+	
+	/**
+	 * This method is used to set the registry the measurements are recorded in
+	 * @param registry the metrics registry
+	 */
+	public void setRegistry(MetricsRegistry registry)
+	{
+		this.registry = registry;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) 
+	{
+		// stamp the start only once so an async dispatch does not restart the clock
+		if (request.getAttribute(START) == null)
+		{
+			request.setAttribute(START, System.nanoTime());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) 
+	{
+		// record the request against the handler method
+		Object start = request.getAttribute(START);
+		if (start != null && handler instanceof HandlerMethod)
+		{
+			registry.forRequest(((HandlerMethod) handler).getMethod()).record(System.nanoTime() - (Long) start, ex != null);
+		}
+	}
+}
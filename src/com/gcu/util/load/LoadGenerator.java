@@ -0,0 +1,323 @@
+package com.gcu.util.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.gcu.util.metrics.LatencyHistogram;
+
+/**
+ * The LoadGenerator drives the /service endpoints of a running application with a weighted mix of reads and writes
+ * and reports throughput and latency percentiles per operation. Run it with the application classes on the classpath:
+ * <pre>
+ * java -cp target/classes com.gcu.util.load.LoadGenerator --url=http://localhost:8080 --threads=16 --seconds=30 \
+ *     --mix=getOrders:10,getPage:60,createOrder:20,updateOrder:10 --ids=10000
+ * </pre>
+ * @author Josh Van de Walle
+ *
+ */
+public class LoadGenerator 
+{
+	// default settings
+	private String url = "http://localhost:8080";
+	private int threads = 16;
+	private int seconds = 30;
+	private int warmupSeconds = 5;
+	private int ids = 10000;
+	private String mix = "getOrders:10,getPage:60,createOrder:20,updateOrder:10";
+	
+	// envelope code and order version in a response
+	private static final Pattern CODE = Pattern.compile("\"code\":(\\d+)");
+	private static final Pattern VERSION = Pattern.compile("\"version\":(\\d+)");
+	
+	// operations with their weights, in the order given
+	private final Map<Operation, Integer> weights = new LinkedHashMap<Operation, Integer>();
+	
+	/**
+	 * This method runs the load generator from the command line
+	 * @param args settings in --name=value form
+	 * @throws Exception if the run is interrupted
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		LoadGenerator generator = new LoadGenerator();
+		generator.configure(args);
+		generator.run();
+	}
+	
+	/**
+	 * This method reads the command line settings
+	 * @param args settings in --name=value form
+	 */
+	private void configure(String[] args)
+	{
+		for (String arg : args)
+		{
+			String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+			String value = pair.length > 1 ? pair[1] : "";
+			switch (pair[0])
+			{
+				case "url": url = value.replaceAll("/$", ""); break;
+				case "threads": threads = Integer.parseInt(value); break;
+				case "seconds": seconds = Integer.parseInt(value); break;
+				case "warmup": warmupSeconds = Integer.parseInt(value); break;
+				case "ids": ids = Integer.parseInt(value); break;
+				case "mix": mix = value; break;
+				default: throw new IllegalArgumentException("Unknown setting: " + arg);
+			}
+		}
+		
+		// parse the operation mix
+		for (String entry : mix.split(","))
+		{
+			String[] pair = entry.trim().split(":");
+			weights.put(Operation.valueOf(pair[0]), Integer.parseInt(pair[1]));
+		}
+	}
+	
+	/**
+	 * This method warms the application up, then runs the measured load and prints the report
+	 * @throws InterruptedException if the run is interrupted
+	 */
+	private void run() throws InterruptedException
+	{
+		System.out.printf("Driving %s with %d threads for %ds (+%ds warmup), mix %s%n", url, threads, seconds, warmupSeconds, mix);
+		drive(warmupSeconds);
+		Map<Operation, Stats> stats = drive(seconds);
+		report(stats, seconds);
+	}
+	
+	/**
+	 * This method runs the load for a fixed time
+	 * @param duration how long to run in seconds
+	 * @return the measurements per operation
+	 * @throws InterruptedException if the run is interrupted
+	 */
+	private Map<Operation, Stats> drive(int duration) throws InterruptedException
+	{
+		// measurements per operation
+		final Map<Operation, Stats> stats = new LinkedHashMap<Operation, Stats>();
+		for (Operation operation : weights.keySet())
+		{
+			stats.put(operation, new Stats());
+		}
+		
+		// pick operations by weight until the time is up
+		final List<Operation> wheel = new ArrayList<Operation>();
+		weights.forEach((operation, weight) -> { for (int i = 0; i < weight; i++) wheel.add(operation); });
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++)
+		{
+			pool.execute(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (System.nanoTime() < deadline)
+				{
+					Operation operation = wheel.get(random.nextInt(wheel.size()));
+					Stats stat = stats.get(operation);
+					long start = System.nanoTime();
+					int code = call(operation, random);
+					stat.latency.record(System.nanoTime() - start);
+					(code / 100 == 2 ? stat.ok : code == 409 ? stat.conflicts : stat.failed).increment();
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(duration + 60, TimeUnit.SECONDS);
+		return stats;
+	}
+	
+	/**
+	 * This method performs one operation
+	 * @param operation the operation to perform
+	 * @param random the source of order numbers and IDs
+	 * @return the envelope code the application answered with, or -1 if the request failed
+	 */
+	private int call(Operation operation, ThreadLocalRandom random)
+	{
+		int id = 1 + random.nextInt(ids);
+		switch (operation)
+		{
+			case getOrders: return code(request("GET", "/service/getOrders", null));
+			case getPage: return code(request("GET", "/service/getOrders?afterId=" + random.nextInt(ids) + "&pageSize=50", null));
+			case createOrder: return code(request("POST", "/service/createOrder", order(0, "LOAD-" + random.nextLong(Long.MAX_VALUE), 0)));
+			case updateOrder: return update(id);
+			default: throw new IllegalStateException(operation.name());
+		}
+	}
+	
+	/**
+	 * This method reads an order and then updates it with the version it read, as a client does
+	 * @param id the order ID
+	 * @return the envelope code of the update, 409 if another writer got there first
+	 */
+	private int update(int id)
+	{
+		String current = request("GET", "/service/getOrder/" + id, null);
+		Matcher version = current == null ? null : VERSION.matcher(current);
+		if (version == null || !version.find())
+		{
+			return code(current);
+		}
+		return code(request("POST", "/service/updateOrder", order(id, "ORD-" + (id - 1), Integer.parseInt(version.group(1)))));
+	}
+	
+	/**
+	 * This method builds an order request body
+	 * @param id the order ID, 0 for a new order
+	 * @param orderNo the order number
+	 * @param version the version the order was read at
+	 * @return the JSON body
+	 */
+	private static String order(int id, String orderNo, int version)
+	{
+		return "{\"id\":" + id + ",\"orderNo\":\"" + orderNo + "\",\"productName\":\"Load test\",\"price\":9.99,\"quantity\":1,\"version\":" + version + "}";
+	}
+	
+	/**
+	 * This method reads the envelope code from the end of a response
+	 * @param tail the end of the response, or null if the request failed
+	 * @return the last envelope code in the response, 200 if it has none, or -1 if the request failed
+	 */
+	private static int code(String tail)
+	{
+		if (tail == null)
+		{
+			return -1;
+		}
+		Matcher matcher = CODE.matcher(tail);
+		int code = 200;
+		while (matcher.find())
+		{
+			code = Integer.parseInt(matcher.group(1));
+		}
+		return code;
+	}
+	
+	/**
+	 * This method sends one request and reads the whole response
+	 * @param method the HTTP method
+	 * @param path the path under the application URL
+	 * @param body the JSON body, or null
+	 * @return the end of the response, enough to find the envelope code, or null if the request failed
+	 */
+	private String request(String method, String path, String body)
+	{
+		HttpURLConnection connection = null;
+		try 
+		{
+			connection = (HttpURLConnection) new URL(url + path).openConnection();
+			connection.setRequestMethod(method);
+			connection.setConnectTimeout(5000);
+			connection.setReadTimeout(30000);
+			if (body != null)
+			{
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", "application/json");
+				try (OutputStream out = connection.getOutputStream())
+				{
+					out.write(body.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			
+			// read the response so the connection can be reused, keeping only the end for the envelope code
+			int status = connection.getResponseCode();
+			if (status >= 400)
+			{
+				drain(connection.getErrorStream());
+				return "\"code\":" + status;
+			}
+			return drain(connection.getInputStream());
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * This method reads a response stream to the end
+	 * @param in the stream to read, or null
+	 * @return the end of the response, enough to find the envelope code
+	 * @throws IOException if the stream fails
+	 */
+	private static String drain(InputStream in) throws IOException
+	{
+		if (in == null)
+		{
+			return "";
+		}
+		try (InputStream stream = in)
+		{
+			// keep the last 256 bytes read, where the envelope code and message are
+			byte[] buffer = new byte[8192];
+			byte[] tail = new byte[256];
+			int kept = 0;
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+			{
+				int fromBuffer = Math.min(read, tail.length);
+				int fromTail = Math.min(kept, tail.length - fromBuffer);
+				System.arraycopy(tail, kept - fromTail, tail, 0, fromTail);
+				System.arraycopy(buffer, read - fromBuffer, tail, fromTail, fromBuffer);
+				kept = fromTail + fromBuffer;
+			}
+			return new String(tail, 0, kept, StandardCharsets.UTF_8);
+		}
+	}
+	
+	/**
+	 * This method prints throughput and latency percentiles per operation
+	 * @param stats the measurements per operation
+	 * @param duration the measured time in seconds
+	 */
+	private static void report(Map<Operation, Stats> stats, int duration)
+	{
+		System.out.printf("%-12s %10s %8s %9s %10s %9s %9s %9s %9s%n", "operation", "requests", "errors", "conflicts", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+		long total = 0;
+		for (Map.Entry<Operation, Stats> entry : stats.entrySet())
+		{
+			Stats stat = entry.getValue();
+			LatencyHistogram.Snapshot snapshot = stat.latency.snapshot();
+			long requests = stat.ok.sum() + stat.failed.sum() + stat.conflicts.sum();
+			total += requests;
+			System.out.printf("%-12s %10d %8d %9d %10.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), requests, stat.failed.sum(), stat.conflicts.sum(),
+					(double) requests / duration, snapshot.getPercentile(50) / 1e6, snapshot.getPercentile(90) / 1e6,
+					snapshot.getPercentile(99) / 1e6, snapshot.getMax() / 1e6);
+		}
+		System.out.printf("%-12s %10d %8s %9s %10.1f%n", "total", total, "", "", (double) total / duration);
+	}
+	
+	/**
+	 * The operations the generator can perform
+	 */
+	private enum Operation 
+	{
+		getOrders, getPage, createOrder, updateOrder
+	}
+	
+	/**
+	 * The measurements of one operation
+	 */
+	private static final class Stats
+	{
+		final LongAdder ok = new LongAdder();
+		final LongAdder failed = new LongAdder();
+		final LongAdder conflicts = new LongAdder();
+		final LatencyHistogram latency = new LatencyHistogram();
+	}
+}
@@ -0,0 +1,161 @@
+package com.gcu.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram records durations into log-linear buckets without locking, in the style of an HDR histogram.
+ * Each power of two is split into 8 sub-buckets, so any percentile read back is within 12.5% of the recorded value
+ * @author Josh Van de Walle
+ *
+ */
+public class LatencyHistogram 
+{
+	// number of bits used to split each power of two into sub-buckets
+	private static final int SUB_BUCKET_BITS = 3;
+	
+	// number of sub-buckets per power of two
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	// enough buckets to cover every positive long
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+	
+	// recorded values per bucket
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	
+	// running totals
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+	
+	/**
+	 * This method records one duration
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(long nanos)
+	{
+		// clamp clock skew to zero
+		long value = Math.max(0, nanos);
+		
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+	
+	/**
+	 * This method copies the recorded values so percentiles can be read consistently
+	 * @return a snapshot of the histogram
+	 */
+	public Snapshot snapshot()
+	{
+		long[] copy = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			copy[i] = counts.get(i);
+			total += copy[i];
+		}
+		return new Snapshot(copy, total, sum.sum(), max.get());
+	}
+	
+	/**
+	 * This method finds the bucket a value is recorded in
+	 * @param value a non-negative value
+	 * @return the bucket index
+	 */
+	static int bucketOf(long value)
+	{
+		// small values get a bucket each
+		if (value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+		
+		// otherwise pick the power of two and the sub-bucket within it
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+	}
+	
+	/**
+	 * This method finds the smallest value recorded in a bucket
+	 * @param bucket the bucket index
+	 * @return the lowest value of the bucket
+	 */
+	static long lowestValueOf(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+		int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+		return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+	}
+	
+	/**
+	 * A point in time copy of a histogram
+	 */
+	public static final class Snapshot
+	{
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+		
+		Snapshot(long[] counts, long count, long sum, long max)
+		{
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+		
+		public long getCount() {
+			return count;
+		}
+		
+		public long getSum() {
+			return sum;
+		}
+		
+		public long getMax() {
+			return max;
+		}
+		
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+		
+		/**
+		 * This method estimates a percentile from the bucket counts
+		 * @param percentile the percentile between 0 and 100
+		 * @return the estimated value, or 0 if nothing was recorded
+		 */
+		public long getPercentile(double percentile)
+		{
+			if (count == 0)
+			{
+				return 0;
+			}
+			
+			// walk the buckets until the requested rank is reached
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++)
+			{
+				seen += counts[i];
+				if (seen >= rank)
+				{
+					// report the middle of the bucket, never more than the largest value seen
+					long low = lowestValueOf(i);
+					long high = i + 1 < counts.length ? lowestValueOf(i + 1) - 1 : Long.MAX_VALUE;
+					return Math.min(max, low + (high - low) / 2);
+				}
+			}
+			return max;
+		}
+	}
+}
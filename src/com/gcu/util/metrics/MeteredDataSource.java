@@ -0,0 +1,125 @@
+package com.gcu.util.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * The MeteredDataSource wraps a connection pool to time every connection borrow and report live pool gauges
+ * @author Josh Van de Walle
+ *
+ */
+public class MeteredDataSource extends DelegatingDataSource 
+{
+	// time spent waiting for a connection
+	private final LatencyHistogram borrowLatency = new LatencyHistogram();
+	
+	// threads currently waiting for a connection
+	private final AtomicInteger waiters = new AtomicInteger();
+	
+	/**
+	 * This constructor wraps a connection pool
+	 * @param pool the pool to meter
+	 */
+	public MeteredDataSource(DataSource pool)
+	{
+		super(pool);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException 
+	{
+		// time the borrow while counting the caller as a waiter
+		long start = System.nanoTime();
+		waiters.incrementAndGet();
+		try 
+		{
+			return super.getConnection();
+		}
+		finally 
+		{
+			waiters.decrementAndGet();
+			borrowLatency.record(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException 
+	{
+		// time the borrow while counting the caller as a waiter
+		long start = System.nanoTime();
+		waiters.incrementAndGet();
+		try 
+		{
+			return super.getConnection(username, password);
+		}
+		finally 
+		{
+			waiters.decrementAndGet();
+			borrowLatency.record(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * This method reads the connection borrow latency
+	 * @return the histogram of borrow latency in nanoseconds
+	 */
+	public LatencyHistogram getBorrowLatency()
+	{
+		return borrowLatency;
+	}
+	
+	/**
+	 * This method reads the number of connections in use without taking a full snapshot, so it is cheap enough
+	 * to call on every borrow
+	 * @return the connections in use, or -1 if the pool does not report it
+	 */
+	public int getActiveConnections()
+	{
+		DataSource pool = getTargetDataSource();
+		if (pool instanceof BasicDataSource)
+		{
+			return ((BasicDataSource) pool).getNumActive();
+		}
+		if (pool instanceof HikariDataSource && ((HikariDataSource) pool).getHikariPoolMXBean() != null)
+		{
+			return ((HikariDataSource) pool).getHikariPoolMXBean().getActiveConnections();
+		}
+		return -1;
+	}
+	
+	/**
+	 * This method reads the live pool gauges
+	 * @return a snapshot of the pool gauges and borrow latency
+	 */
+	public PoolStats getPoolStats()
+	{
+		DataSource pool = getTargetDataSource();
+		
+		// IF the pool is commons-dbcp2
+		if (pool instanceof BasicDataSource)
+		{
+			BasicDataSource dbcp = (BasicDataSource) pool;
+			return new PoolStats("dbcp2", dbcp.getNumActive(), dbcp.getNumIdle(), waiters.get(), dbcp.getMaxTotal(), borrowLatency.snapshot());
+		}
+		
+		// IF the pool is HikariCP and has started
+		if (pool instanceof HikariDataSource && ((HikariDataSource) pool).getHikariPoolMXBean() != null)
+		{
+			HikariDataSource hikari = (HikariDataSource) pool;
+			HikariPoolMXBean mxBean = hikari.getHikariPoolMXBean();
+			return new PoolStats("hikari", mxBean.getActiveConnections(), mxBean.getIdleConnections(), waiters.get(), hikari.getMaximumPoolSize(), borrowLatency.snapshot());
+		}
+		
+		// otherwise only the borrow side is known
+		return new PoolStats(pool == null ? "none" : pool.getClass().getSimpleName(), 0, 0, waiters.get(), 0, borrowLatency.snapshot());
+	}
+}
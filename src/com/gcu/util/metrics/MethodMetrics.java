@@ -0,0 +1,61 @@
+package com.gcu.util.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The MethodMetrics hold the call count, error count and latency of one monitored method
+ * @author Josh Van de Walle
+ *
+ */
+public class MethodMetrics 
+{
+	// the name the method is reported under
+	private final String name;
+	
+	// striped counters so concurrent callers do not contend
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	
+	// call latency
+	private final LatencyHistogram latency = new LatencyHistogram();
+	
+	/**
+	 * This constructor names the metrics
+	 * @param name the name the method is reported under
+	 */
+	public MethodMetrics(String name)
+	{
+		this.name = name;
+	}
+	
+	/**
+	 * This method records one call
+	 * @param nanos how long the call took
+	 * @param failed whether the call failed
+	 */
+	public void record(long nanos, boolean failed)
+	{
+		calls.increment();
+		if (failed)
+		{
+			errors.increment();
+		}
+		latency.record(nanos);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+}
@@ -0,0 +1,141 @@
+package com.gcu.util.metrics;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * The MetricsRegistry holds the metrics of every monitored method
+ * @author Josh Van de Walle
+ *
+ */
+public class MetricsRegistry 
+{
+	// metrics by the class a method runs on and then by method, so an interface method is measured apart for each implementation
+	private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Method, MethodMetrics>> methods = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<Method, MethodMetrics>>();
+	
+	// whole request metrics by handler method
+	private final ConcurrentHashMap<Method, MethodMetrics> requests = new ConcurrentHashMap<Method, MethodMetrics>();
+	
+	/**
+	 * This method finds the metrics of a method on a class, creating them the first time the pair is seen. A handler
+	 * whose response completes later, such as one returning a DeferredResult, only submits the work while it is timed,
+	 * so its metrics are named with a .submit suffix. Its whole request is measured by the request metrics
+	 * @param method the monitored method
+	 * @param target the class the method runs on, used to keep and name interface methods by their implementation
+	 * @return the metrics of the method
+	 */
+	public MethodMetrics forMethod(Method method, Class<?> target)
+	{
+		ConcurrentHashMap<Method, MethodMetrics> byMethod = methods.get(target);
+		if (byMethod == null)
+		{
+			byMethod = methods.computeIfAbsent(target, t -> new ConcurrentHashMap<Method, MethodMetrics>());
+		}
+		MethodMetrics metrics = byMethod.get(method);
+		if (metrics == null)
+		{
+			metrics = byMethod.computeIfAbsent(method, m -> new MethodMetrics(target.getSimpleName() + "." + m.getName()
+					+ (completesLater(m) ? ".submit" : "")));
+		}
+		return metrics;
+	}
+	
+	/**
+	 * This method finds the whole request metrics of a handler method, creating them the first time the handler is seen
+	 * @param handler the handler method
+	 * @return the request metrics of the handler
+	 */
+	public MethodMetrics forRequest(Method handler)
+	{
+		return lookup(requests, handler);
+	}
+	
+	/**
+	 * This method lists the metrics of every method seen so far
+	 * @return the metrics sorted by method name
+	 */
+	public List<MethodMetrics> getMethods()
+	{
+		List<MethodMetrics> result = new ArrayList<MethodMetrics>();
+		for (ConcurrentHashMap<Method, MethodMetrics> byMethod : methods.values())
+		{
+			result.addAll(byMethod.values());
+		}
+		return sorted(result);
+	}
+	
+	/**
+	 * This method lists the whole request metrics of every handler seen so far
+	 * @return the metrics sorted by handler name
+	 */
+	public List<MethodMetrics> getRequests()
+	{
+		return sorted(requests.values());
+	}
+	
+	/**
+	 * This method finds metrics in a map without locking once they exist
+	 * @param map the map to search
+	 * @param method the method the metrics belong to
+	 * @return the metrics of the method
+	 */
+	private static MethodMetrics lookup(ConcurrentHashMap<Method, MethodMetrics> map, Method method)
+	{
+		MethodMetrics metrics = map.get(method);
+		if (metrics == null)
+		{
+			metrics = map.computeIfAbsent(method, m -> new MethodMetrics(m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+		}
+		return metrics;
+	}
+	
+	/**
+	 * This method tells whether a method returns before its response is complete, leaving the work to another thread
+	 * @param method the method
+	 * @return true if the method returns an asynchronous result, alone or as the body of a ResponseEntity
+	 */
+	private static boolean completesLater(Method method)
+	{
+		Class<?> type = method.getReturnType();
+		
+		// look inside a ResponseEntity at the type of its body
+		if (ResponseEntity.class.isAssignableFrom(type) && method.getGenericReturnType() instanceof ParameterizedType)
+		{
+			Type body = ((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0];
+			if (body instanceof ParameterizedType)
+			{
+				body = ((ParameterizedType) body).getRawType();
+			}
+			type = body instanceof Class ? (Class<?>) body : Object.class;
+		}
+		return DeferredResult.class.isAssignableFrom(type) || Callable.class.isAssignableFrom(type)
+				|| WebAsyncTask.class.isAssignableFrom(type) || CompletionStage.class.isAssignableFrom(type)
+				|| ResponseBodyEmitter.class.isAssignableFrom(type) || StreamingResponseBody.class.isAssignableFrom(type);
+	}
+	
+	/**
+	 * This method sorts metrics by name
+	 * @param values the metrics to sort
+	 * @return the sorted metrics
+	 */
+	private static List<MethodMetrics> sorted(Collection<MethodMetrics> values)
+	{
+		List<MethodMetrics> result = new ArrayList<MethodMetrics>(values);
+		result.sort(Comparator.comparing(MethodMetrics::getName));
+		return result;
+	}
+}
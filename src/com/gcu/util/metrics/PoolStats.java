@@ -0,0 +1,81 @@
+package com.gcu.util.metrics;
+
+public class PoolStats
+{
+	private String pool;
+	
+	private int active;
+	
+	private int idle;
+	
+	private int waiters;
+	
+	private int maxTotal;
+	
+	// connection borrow latency in milliseconds
+	private long borrows;
+	
+	private double borrowMeanMs;
+	
+	private double borrowP50Ms;
+	
+	private double borrowP99Ms;
+	
+	private double borrowMaxMs;
+
+	public PoolStats(String pool, int active, int idle, int waiters, int maxTotal, LatencyHistogram.Snapshot borrowLatency) {
+		super();
+		this.pool = pool;
+		this.active = active;
+		this.idle = idle;
+		this.waiters = waiters;
+		this.maxTotal = maxTotal;
+		this.borrows = borrowLatency.getCount();
+		this.borrowMeanMs = borrowLatency.getMean() / 1e6;
+		this.borrowP50Ms = borrowLatency.getPercentile(50) / 1e6;
+		this.borrowP99Ms = borrowLatency.getPercentile(99) / 1e6;
+		this.borrowMaxMs = borrowLatency.getMax() / 1e6;
+	}
+
+	public String getPool() {
+		return pool;
+	}
+
+	public int getActive() {
+		return active;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public int getWaiters() {
+		return waiters;
+	}
+
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	public long getBorrows() {
+		return borrows;
+	}
+
+	public double getBorrowMeanMs() {
+		return borrowMeanMs;
+	}
+
+	public double getBorrowP50Ms() {
+		return borrowP50Ms;
+	}
+
+	public double getBorrowP99Ms() {
+		return borrowP99Ms;
+	}
+
+	public double getBorrowMaxMs() {
+		return borrowMaxMs;
+	}
+	
+	
+}
@@ -0,0 +1,94 @@
+package com.gcu.util.metrics;
+
+/**
+ * The PrometheusWriter builds a metrics page in the Prometheus text exposition format
+ * @author Josh Van de Walle
+ *
+ */
+public class PrometheusWriter 
+{
+	// content type of the text exposition format
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	
+	// quantiles reported for every latency summary
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	
+	private final StringBuilder text = new StringBuilder(4096);
+	
+	/**
+	 * This method starts a metric family
+	 * @param name the metric name
+	 * @param type counter, gauge or summary
+	 * @param help a description of the metric
+	 * @return this writer
+	 */
+	public PrometheusWriter family(String name, String type, String help)
+	{
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		return this;
+	}
+	
+	/**
+	 * This method writes one sample
+	 * @param name the metric name
+	 * @param labels label pairs in Prometheus syntax, e.g. method="x", or null
+	 * @param value the sample value
+	 * @return this writer
+	 */
+	public PrometheusWriter sample(String name, String labels, double value)
+	{
+		text.append(name);
+		if (labels != null && !labels.isEmpty())
+		{
+			text.append('{').append(labels).append('}');
+		}
+		text.append(' ');
+		if (value == Math.rint(value) && !Double.isInfinite(value))
+		{
+			text.append((long) value);
+		}
+		else 
+		{
+			text.append(value);
+		}
+		text.append('\n');
+		return this;
+	}
+	
+	/**
+	 * This method writes a latency histogram as a summary in seconds
+	 * @param name the metric name
+	 * @param labels label pairs in Prometheus syntax, or null
+	 * @param snapshot the recorded latencies in nanoseconds
+	 * @return this writer
+	 */
+	public PrometheusWriter summary(String name, String labels, LatencyHistogram.Snapshot snapshot)
+	{
+		String prefix = labels == null || labels.isEmpty() ? "" : labels + ",";
+		for (double quantile : QUANTILES)
+		{
+			sample(name, prefix + "quantile=\"" + quantile + "\"", snapshot.getPercentile(quantile * 100) / 1e9);
+		}
+		sample(name + "_sum", labels, snapshot.getSum() / 1e9);
+		sample(name + "_count", labels, snapshot.getCount());
+		return this;
+	}
+	
+	/**
+	 * This method builds a label pair with the value escaped
+	 * @param name the label name
+	 * @param value the label value
+	 * @return the label pair
+	 */
+	public static String label(String name, String value)
+	{
+		return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+	}
+	
+	@Override
+	public String toString()
+	{
+		return text.toString();
+	}
+}
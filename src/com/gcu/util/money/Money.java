@@ -0,0 +1,159 @@
+package com.gcu.util.money;
+
+import java.math.BigDecimal;
+
+/**
+ * Money converts between amounts held as a whole number of cents and their decimal text. Amounts are kept as a long
+ * so prices and totals are added and multiplied exactly, without boxing, and only become decimals at the edges:
+ * JSON, CSV and query parameters. An amount with a fraction of a cent is refused rather than rounded
+ * @author Josh Van de Walle
+ *
+ */
+public final class Money
+{
+	// digits after the decimal point
+	public static final int SCALE = 2;
+
+	private Money()
+	{
+	}
+
+	/**
+	 * This method reads a decimal amount, such as 9.99, -3 or 12.50, as cents without building a BigDecimal
+	 * @param text the amount, optionally signed, with at most two significant digits after the point
+	 * @return the amount in cents
+	 * @throws NumberFormatException if the text is not an amount, has a fraction of a cent or does not fit in a long
+	 */
+	public static long parse(CharSequence text)
+	{
+		int length = text.length();
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+'))
+		{
+			negative = text.charAt(0) == '-';
+			i++;
+		}
+
+		// accumulate the digits as a negative number so the most negative amount fits too
+		long cents = 0;
+		int digits = 0;
+		int fraction = -1;
+		for (; i < length; i++)
+		{
+			char c = text.charAt(i);
+			if (c == '.' && fraction < 0)
+			{
+				fraction = 0;
+				continue;
+			}
+
+			// an exponent is rare enough to leave to BigDecimal
+			if (c == 'e' || c == 'E')
+			{
+				return toCents(new BigDecimal(text.toString()));
+			}
+			if (c < '0' || c > '9')
+			{
+				throw new NumberFormatException("Not an amount: " + text);
+			}
+			digits++;
+
+			// digits past the cents must be zeros
+			if (fraction >= SCALE)
+			{
+				if (c != '0')
+				{
+					throw new NumberFormatException("More than " + SCALE + " decimal places: " + text);
+				}
+				continue;
+			}
+			if (fraction >= 0)
+			{
+				fraction++;
+			}
+			cents = subtractExact(multiplyExact(cents, 10, text), c - '0', text);
+		}
+		if (digits == 0)
+		{
+			throw new NumberFormatException("Not an amount: " + text);
+		}
+
+		// scale a whole amount, or one with a single decimal place, up to cents
+		for (int scale = Math.max(fraction, 0); scale < SCALE; scale++)
+		{
+			cents = multiplyExact(cents, 10, text);
+		}
+		if (negative)
+		{
+			return cents;
+		}
+		if (cents == Long.MIN_VALUE)
+		{
+			throw new NumberFormatException("Amount out of range: " + text);
+		}
+		return -cents;
+	}
+
+	/**
+	 * This method converts a decimal amount to cents
+	 * @param amount the amount, with at most two significant digits after the point
+	 * @return the amount in cents
+	 * @throws NumberFormatException if the amount has a fraction of a cent or does not fit in a long
+	 */
+	public static long toCents(BigDecimal amount)
+	{
+		try
+		{
+			return amount.setScale(SCALE).unscaledValue().longValueExact();
+		}
+		catch (ArithmeticException e)
+		{
+			throw new NumberFormatException("Not a whole number of cents in range: " + amount);
+		}
+	}
+
+	/**
+	 * This method converts cents to a decimal amount
+	 * @param cents the amount in cents
+	 * @return the amount, with two digits after the point
+	 */
+	public static BigDecimal toDecimal(long cents)
+	{
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+
+	/**
+	 * This method writes cents as a decimal amount, such as 9.99 or -0.05
+	 * @param cents the amount in cents
+	 * @return the amount, with two digits after the point
+	 */
+	public static String format(long cents)
+	{
+		return toDecimal(cents).toPlainString();
+	}
+
+	/**
+	 * This method multiplies, reporting overflow as a NumberFormatException for the text being read
+	 */
+	private static long multiplyExact(long value, int factor, CharSequence text)
+	{
+		if (value < Long.MIN_VALUE / factor)
+		{
+			throw new NumberFormatException("Amount out of range: " + text);
+		}
+		return value * factor;
+	}
+
+	/**
+	 * This method subtracts, reporting overflow as a NumberFormatException for the text being read
+	 */
+	private static long subtractExact(long value, int digit, CharSequence text)
+	{
+		if (value < Long.MIN_VALUE + digit)
+		{
+			throw new NumberFormatException("Amount out of range: " + text);
+		}
+		return value - digit;
+	}
+}
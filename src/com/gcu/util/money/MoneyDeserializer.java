@@ -0,0 +1,73 @@
+package com.gcu.util.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * The MoneyDeserializer reads a decimal amount, such as 9.99, into cents exactly. The text of a JSON number is
+ * read digit by digit instead of through a double, so 0.29 is 29 cents and not 28.999. An amount with a fraction
+ * of a cent is refused, which the message converter answers with a 400
+ * @author Josh Van de Walle
+ *
+ */
+public class MoneyDeserializer extends StdDeserializer<Long>
+{
+	private static final long serialVersionUID = 1L;
+
+	public MoneyDeserializer()
+	{
+		super(Long.class);
+	}
+
+	@Override
+	public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException
+	{
+		switch (p.getCurrentToken())
+		{
+			// a whole amount
+			case VALUE_NUMBER_INT:
+				if (p.getNumberType() == JsonParser.NumberType.BIG_INTEGER || p.getLongValue() > Long.MAX_VALUE / 100
+						|| p.getLongValue() < Long.MIN_VALUE / 100)
+				{
+					throw ctxt.weirdNumberException(p.getNumberValue(), Long.class, "Amount out of range");
+				}
+				return p.getLongValue() * 100;
+
+			// a decimal amount, from its text unless a binary format holds it as a BigDecimal
+			case VALUE_NUMBER_FLOAT:
+				try
+				{
+					return p.getNumberType() == JsonParser.NumberType.BIG_DECIMAL ? Money.toCents(p.getDecimalValue()) : Money.parse(p.getText());
+				}
+				catch (NumberFormatException e)
+				{
+					throw ctxt.weirdNumberException(p.getNumberValue(), Long.class, e.getMessage());
+				}
+
+			// an amount sent as a string
+			case VALUE_STRING:
+				String text = p.getText().trim();
+				try
+				{
+					return Money.parse(text);
+				}
+				catch (NumberFormatException e)
+				{
+					throw ctxt.weirdStringException(text, Long.class, e.getMessage());
+				}
+
+			default:
+				return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+		}
+	}
+
+	@Override
+	public Long getNullValue(DeserializationContext ctxt)
+	{
+		// a missing price reads as zero, as it did for the primitive field
+		return 0L;
+	}
+}
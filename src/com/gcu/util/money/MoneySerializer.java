@@ -0,0 +1,29 @@
+package com.gcu.util.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * The MoneySerializer writes an amount held in cents as a decimal number with two digits after the point, such as
+ * 9.50, so clients see the same price field they always have. Smile writes it as an exact decimal, not a double
+ * @author Josh Van de Walle
+ *
+ */
+public class MoneySerializer extends StdSerializer<Long>
+{
+	private static final long serialVersionUID = 1L;
+
+	public MoneySerializer()
+	{
+		super(Long.class);
+	}
+
+	@Override
+	public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException
+	{
+		gen.writeNumber(Money.toDecimal(cents));
+	}
+}
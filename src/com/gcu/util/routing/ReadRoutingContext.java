@@ -0,0 +1,164 @@
+package com.gcu.util.routing;
+
+/**
+ * The ReadRoutingContext tells the ReplicaRoutingDataSource whether the statement about to run may go to a read
+ * replica. A read is sent to a replica unless the session asked for its own writes to be visible, or the request
+ * has already written, in which case every later statement of the request stays on the primary. Every read of a
+ * request goes to the replica of its first read, so the orders it reads are never older than the version it read
+ * before them. The context of a request follows it onto the threads that run its work
+ * @author Josh Van de Walle
+ *
+ */
+public final class ReadRoutingContext
+{
+	// the context of the request running on each thread
+	private static final ThreadLocal<ReadRoutingContext> CURRENT = new ThreadLocal<ReadRoutingContext>();
+
+	// the depth of read-only data service calls running on each thread
+	private static final ThreadLocal<int[]> READS = ThreadLocal.withInitial(() -> new int[1]);
+
+	// true once the request must read from the primary
+	private volatile boolean primary;
+
+	// true once the request has written
+	private volatile boolean wrote;
+
+	// the replica the request reads from once it has read from one, or -1
+	private volatile int replica = -1;
+
+	/**
+	 * This constructor starts the context of a request
+	 * @param primary true if the session wrote recently and must read its own writes
+	 */
+	public ReadRoutingContext(boolean primary)
+	{
+		this.primary = primary;
+	}
+
+	/**
+	 * This method tells whether the request has written
+	 * @return true after the first write of the request
+	 */
+	public boolean hasWritten()
+	{
+		return wrote;
+	}
+
+	/**
+	 * This method returns the context bound to the current thread
+	 * @return the context, or null outside of a request
+	 */
+	public static ReadRoutingContext current()
+	{
+		return CURRENT.get();
+	}
+
+	/**
+	 * This method binds a context to the current thread
+	 * @param context the context to bind, or null to unbind
+	 * @return the context that was bound before, to be restored afterwards
+	 */
+	public static ReadRoutingContext bind(ReadRoutingContext context)
+	{
+		ReadRoutingContext previous = CURRENT.get();
+		if (context == null)
+		{
+			CURRENT.remove();
+		}
+		else
+		{
+			CURRENT.set(context);
+		}
+		return previous;
+	}
+
+	/**
+	 * This method marks the start of a read-only data service call on the current thread
+	 */
+	public static void beginRead()
+	{
+		READS.get()[0]++;
+	}
+
+	/**
+	 * This method marks the end of a read-only data service call on the current thread
+	 */
+	public static void endRead()
+	{
+		READS.get()[0]--;
+	}
+
+	/**
+	 * This method records a write, so the rest of the request reads from the primary
+	 */
+	public static void written()
+	{
+		ReadRoutingContext context = CURRENT.get();
+		if (context != null)
+		{
+			context.wrote = true;
+			context.primary = true;
+		}
+	}
+
+	/**
+	 * This method finds the replica the request on the current thread reads from
+	 * @return the index of the replica, or -1 if the request has not read from one
+	 */
+	public static int replica()
+	{
+		ReadRoutingContext context = CURRENT.get();
+		return context == null ? -1 : context.replica;
+	}
+
+	/**
+	 * This method records the replica the request on the current thread read from, so its later reads go there too
+	 * @param replica the index of the replica
+	 */
+	public static void readFrom(int replica)
+	{
+		ReadRoutingContext context = CURRENT.get();
+		if (context != null)
+		{
+			context.replica = replica;
+		}
+	}
+
+	/**
+	 * This method sends the rest of the request on the current thread to the primary, after the replica it read
+	 * from failed. The primary has every write a replica has, so the request still reads nothing older than before
+	 */
+	public static void replicaFailed()
+	{
+		ReadRoutingContext context = CURRENT.get();
+		if (context != null)
+		{
+			context.primary = true;
+		}
+	}
+
+	/**
+	 * This method tells whether the request on the current thread reads from the primary. Such a request must
+	 * not be served from a cache that replica reads may have filled with data older than its writes
+	 * @return true if the session or the request wrote recently
+	 */
+	public static boolean readsPrimary()
+	{
+		ReadRoutingContext context = CURRENT.get();
+		return context != null && context.primary;
+	}
+
+	/**
+	 * This method tells whether the statement about to run on the current thread may go to a replica
+	 * @return true inside a read-only call of a request that has not asked for the primary
+	 */
+	public static boolean isReplicaRead()
+	{
+		if (READS.get()[0] <= 0)
+		{
+			return false;
+		}
+		ReadRoutingContext context = CURRENT.get();
+		return context == null || !context.primary;
+	}
+}
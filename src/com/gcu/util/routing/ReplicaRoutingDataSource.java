@@ -0,0 +1,190 @@
+package com.gcu.util.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.gcu.util.metrics.MeteredDataSource;
+
+/**
+ * The ReplicaRoutingDataSource sends reads to a pool of read replicas and everything else to the primary. Replicas
+ * are chosen round-robin, or by fewest connections in use when balancing is "least-connections". A replica that
+ * cannot hand out a connection is skipped, and the read falls back to the primary if none can. A request keeps reading
+ * from the replica it first read from, and moves to the primary if that replica fails
+ * @author Josh Van de Walle
+ *
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource
+{
+	private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	private DataSource primary;
+	private List<DataSource> replicas = new ArrayList<DataSource>();
+	private boolean leastConnections;
+
+	// next replica in round-robin order
+	private final AtomicInteger next = new AtomicInteger();
+
+	// reads served by each replica, reads that fell back to the primary, and replica borrows that failed
+	private LongAdder[] replicaReads = new LongAdder[0];
+	private final LongAdder fallbackReads = new LongAdder();
+	private final LongAdder replicaFailures = new LongAdder();
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		// IF the statement may read from a replica
+		if (!replicas.isEmpty() && ReadRoutingContext.isReplicaRead())
+		{
+			// IF the request has read from a replica, read from it again, since another replica may have fewer writes
+			int replica = ReadRoutingContext.replica();
+			if (replica >= 0)
+			{
+				try
+				{
+					Connection connection = replicas.get(replica).getConnection();
+					replicaReads[replica].increment();
+					return connection;
+				}
+				catch (SQLException e)
+				{
+					// the primary has every write the replica has, so the rest of the request reads from it
+					replicaFailures.increment();
+					logger.warn("Read replica {} is unavailable: {}", replica, e.toString());
+					ReadRoutingContext.replicaFailed();
+					fallbackReads.increment();
+					return primary.getConnection();
+				}
+			}
+
+			int first = choose();
+			for (int i = 0; i < replicas.size(); i++)
+			{
+				int index = (first + i) % replicas.size();
+				try
+				{
+					Connection connection = replicas.get(index).getConnection();
+					replicaReads[index].increment();
+					ReadRoutingContext.readFrom(index);
+					return connection;
+				}
+				catch (SQLException e)
+				{
+					// try the next replica
+					replicaFailures.increment();
+					logger.warn("Read replica {} is unavailable: {}", index, e.toString());
+				}
+			}
+			ReadRoutingContext.replicaFailed();
+			fallbackReads.increment();
+		}
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		// explicit credentials are only used for administration, which belongs on the primary
+		return primary.getConnection(username, password);
+	}
+
+	/**
+	 * This method picks the replica to try first
+	 * @return the index of the replica
+	 */
+	private int choose()
+	{
+		int size = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), size);
+		if (!leastConnections || size == 1)
+		{
+			return start;
+		}
+
+		// starting from the round-robin choice so ties are spread, take the replica with the fewest connections in use
+		int best = start;
+		int fewest = Integer.MAX_VALUE;
+		for (int i = 0; i < size; i++)
+		{
+			int index = (start + i) % size;
+			DataSource replica = replicas.get(index);
+			int active = replica instanceof MeteredDataSource ? ((MeteredDataSource) replica).getActiveConnections() : -1;
+			if (active >= 0 && active < fewest)
+			{
+				best = index;
+				fewest = active;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * This method tells whether any replica is configured
+	 * @return true if reads may be routed to a replica
+	 */
+	public boolean hasReplicas()
+	{
+		return !replicas.isEmpty();
+	}
+
+	/**
+	 * This method reads the number of reads served by each replica
+	 * @return the read counts, in the order the replicas were configured
+	 */
+	public long[] getReplicaReads()
+	{
+		long[] reads = new long[replicaReads.length];
+		for (int i = 0; i < reads.length; i++)
+		{
+			reads[i] = replicaReads[i].sum();
+		}
+		return reads;
+	}
+
+	/**
+	 * This method reads the number of reads that fell back to the primary because no replica was available
+	 * @return the fallback count
+	 */
+	public long getFallbackReads()
+	{
+		return fallbackReads.sum();
+	}
+
+	/**
+	 * This method reads the number of failed replica borrows
+	 * @return the failure count
+	 */
+	public long getReplicaFailures()
+	{
+		return replicaFailures.sum();
+	}
+
+	public void setPrimary(DataSource primary) {
+		this.primary = primary;
+	}
+
+	@Autowired(required = false)
+	public void setReplicas(@Qualifier("replica") List<DataSource> replicas) {
+		this.replicas = new ArrayList<DataSource>(replicas);
+		this.replicaReads = new LongAdder[replicas.size()];
+		for (int i = 0; i < replicaReads.length; i++)
+		{
+			replicaReads[i] = new LongAdder();
+		}
+	}
+
+	public void setBalancing(String balancing) {
+		this.leastConnections = "least-connections".equalsIgnoreCase(balancing);
+	}
+}
@@ -0,0 +1,175 @@
+package com.gcu.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gcu.model.Order;
+import com.gcu.util.exception.ConcurrentUpdateException;
+
+/**
+ * Tests of the OrdersDataService version checks and bulk write accounting against embedded Derby
+ * @author Josh Van de Walle
+ *
+ */
+public class OrdersDataServiceTest
+{
+	private TestDatabase database;
+	private OrdersDataService service;
+
+	@Before
+	public void setUp()
+	{
+		database = new TestDatabase();
+		service = database.getDataService();
+	}
+
+	@After
+	public void tearDown()
+	{
+		database.close();
+	}
+
+	@Test
+	public void updateWithTheVersionReadSucceedsAndAdvancesTheVersion()
+	{
+		Order order = new Order("CAS-1", "Widget", 150, 1);
+		assertTrue(service.create(order));
+		long tableVersion = database.version();
+
+		order.setQuantity(2);
+		assertTrue(service.update(order));
+		assertEquals(1, order.getVersion());
+		assertEquals(1, service.findById(order.getId()).getVersion());
+		assertEquals(tableVersion + 1, database.version());
+	}
+
+	@Test
+	public void updateWithAStaleVersionIsAConflict()
+	{
+		Order order = new Order("CAS-1", "Widget", 150, 1);
+		assertTrue(service.create(order));
+
+		// two clients read version 0 and the first one saves
+		Order first = service.findById(order.getId());
+		Order second = service.findById(order.getId());
+		first.setQuantity(2);
+		assertTrue(service.update(first));
+		long tableVersion = database.version();
+
+		// the second one must not overwrite it
+		second.setQuantity(3);
+		try
+		{
+			service.update(second);
+			fail("a stale version was saved");
+		}
+		catch (ConcurrentUpdateException e)
+		{
+			// expected
+		}
+		assertEquals(2, service.findById(order.getId()).getQuantity());
+		assertEquals(tableVersion, database.version());
+	}
+
+	@Test
+	public void updateOfAMissingOrderIsNotFound()
+	{
+		long tableVersion = database.version();
+		assertFalse(service.update(new Order(12345, "CAS-1", "Widget", 150, 1)));
+		assertEquals(tableVersion, database.version());
+	}
+
+	@Test
+	public void createAllFlagsOnlyTheOrdersOfTheChunksThatWereInserted()
+	{
+		assertTrue(service.create(new Order("BULK-0", "Widget", 150, 1)));
+		long tableVersion = database.version();
+
+		// the second chunk starts with a duplicate order number, so Derby runs none of it
+		service.setBatchSize(2);
+		List<Order> orders = Arrays.asList(new Order("BULK-1", "Widget", 150, 1), new Order("BULK-2", "Widget", 150, 1),
+				new Order("BULK-0", "Widget", 150, 1), new Order("BULK-3", "Widget", 150, 1));
+		boolean[] created = service.createAll(orders);
+
+		assertArrayEquals(new boolean[] { true, true, false, false }, created);
+		assertEquals(0, database.count("BULK-3"));
+		assertEquals(1, database.count("BULK-0"));
+
+		// the created orders carry the IDs they were stored with, the others none
+		assertEquals(service.findByOrderNo("BULK-1").getId(), orders.get(0).getId());
+		assertEquals(service.findByOrderNo("BULK-2").getId(), orders.get(1).getId());
+		assertEquals(0, orders.get(2).getId());
+		assertEquals(0, orders.get(3).getId());
+		assertEquals(tableVersion + 1, database.version());
+	}
+
+	@Test
+	public void createAllTakesTheGeneratedKeyOfAOneOrderChunk()
+	{
+		service.setBatchSize(1);
+		List<Order> orders = Arrays.asList(new Order("BULK-1", "Widget", 150, 1), new Order("BULK-2", "Widget", 150, 1));
+		assertArrayEquals(new boolean[] { true, true }, service.createAll(orders));
+		assertEquals(service.findByOrderNo("BULK-1").getId(), orders.get(0).getId());
+		assertEquals(service.findByOrderNo("BULK-2").getId(), orders.get(1).getId());
+	}
+
+	@Test
+	public void createAllThatInsertsNothingLeavesTheVersion()
+	{
+		assertTrue(service.create(new Order("BULK-0", "Widget", 150, 1)));
+		long tableVersion = database.version();
+
+		assertArrayEquals(new boolean[] { false }, service.createAll(Arrays.asList(new Order("BULK-0", "Widget", 150, 1))));
+		assertEquals(tableVersion, database.version());
+	}
+
+	@Test
+	public void updateAllReportsEachOutcome()
+	{
+		Order current = new Order("BULK-1", "Widget", 150, 1);
+		Order stale = new Order("BULK-2", "Widget", 150, 1);
+		assertTrue(service.create(current));
+		assertTrue(service.create(stale));
+		Order changed = service.findById(stale.getId());
+		assertTrue(service.update(changed));
+		long tableVersion = database.version();
+
+		current.setQuantity(5);
+		stale.setQuantity(5);
+		Order missing = new Order(12345, "BULK-3", "Widget", 150, 1);
+		WriteOutcome[] outcomes = service.updateAll(Arrays.asList(current, stale, missing));
+
+		assertArrayEquals(new WriteOutcome[] { WriteOutcome.DONE, WriteOutcome.CONFLICT, WriteOutcome.NOT_FOUND }, outcomes);
+		assertEquals(1, current.getVersion());
+		assertEquals(0, stale.getVersion());
+		assertEquals(5, service.findById(current.getId()).getQuantity());
+		assertEquals(1, service.findById(stale.getId()).getQuantity());
+		assertNull(service.findById(12345));
+		assertEquals(tableVersion + 1, database.version());
+	}
+
+	@Test
+	public void updateAllThatChangesNothingLeavesTheVersion()
+	{
+		Order stale = new Order("BULK-1", "Widget", 150, 1);
+		assertTrue(service.create(stale));
+		assertTrue(service.update(service.findById(stale.getId())));
+		long tableVersion = database.version();
+
+		WriteOutcome[] outcomes = service.updateAll(Arrays.asList(stale, new Order(12345, "BULK-2", "Widget", 150, 1)));
+
+		assertArrayEquals(new WriteOutcome[] { WriteOutcome.CONFLICT, WriteOutcome.NOT_FOUND }, outcomes);
+		assertEquals(tableVersion, database.version());
+	}
+}
@@ -0,0 +1,89 @@
+package com.gcu.data;
+
+import java.sql.DriverManager;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.gcu.config.EmbeddedDatabaseInitializer;
+
+/**
+ * The TestDatabase creates an empty in-memory Derby database with the schema the application ships, and a data
+ * service over it
+ * @author Josh Van de Walle
+ *
+ */
+public class TestDatabase
+{
+	// keeps every test on its own database
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private final String name;
+	private final BasicDataSource dataSource;
+	private final OrdersDataService dataService;
+
+	/**
+	 * This constructor creates the database and its data service
+	 */
+	public TestDatabase()
+	{
+		name = "test" + DATABASES.incrementAndGet();
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+		dataSource.setUrl("jdbc:derby:memory:" + name + ";create=true");
+
+		// create the schema as the derby profile does, without seed orders
+		EmbeddedDatabaseInitializer initializer = new EmbeddedDatabaseInitializer();
+		initializer.setDataSource(dataSource);
+		initializer.setSchema(new ClassPathResource("db/derby/schema.sql"));
+		initializer.afterPropertiesSet();
+
+		dataService = new OrdersDataService();
+		dataService.setDataSource(dataSource);
+	}
+
+	public BasicDataSource getDataSource() {
+		return dataSource;
+	}
+
+	public OrdersDataService getDataService() {
+		return dataService;
+	}
+
+	/**
+	 * This method counts the orders with an order number
+	 * @param orderNo the order number
+	 * @return the number of rows with it
+	 */
+	public int count(String orderNo)
+	{
+		return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM orders WHERE ORDER_NO = ?", Integer.class, orderNo);
+	}
+
+	/**
+	 * This method reads the version of the orders table
+	 * @return the version
+	 */
+	public long version()
+	{
+		return dataService.findVersion().getVersion();
+	}
+
+	/**
+	 * This method closes the pool and drops the in-memory database
+	 */
+	public void close()
+	{
+		try
+		{
+			dataSource.close();
+			DriverManager.getConnection("jdbc:derby:memory:" + name + ";drop=true");
+		}
+		catch (Exception e)
+		{
+			// Derby reports a successful drop as an exception
+		}
+	}
+}
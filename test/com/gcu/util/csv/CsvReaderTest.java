@@ -0,0 +1,92 @@
+package com.gcu.util.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import com.gcu.util.exception.CsvFormatException;
+
+/**
+ * Tests of parsing CSV records
+ * @author Josh Van de Walle
+ *
+ */
+public class CsvReaderTest
+{
+	@Test
+	public void readsPlainAndQuotedFields() throws IOException
+	{
+		CsvReader reader = reader("a,b,c\n\"x, y\",\"say \"\"hi\"\"\",\"\"\n");
+		assertArrayEquals(new String[] { "a", "b", "c" }, reader.next());
+		assertArrayEquals(new String[] { "x, y", "say \"hi\"", "" }, reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	public void readsEmptyFieldsAndALastRecordWithoutALineBreak() throws IOException
+	{
+		CsvReader reader = reader(",,\r\na,,b");
+		assertArrayEquals(new String[] { "", "", "" }, reader.next());
+		assertArrayEquals(new String[] { "a", "", "b" }, reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	public void countsLinesAcrossQuotedLineBreaksAndBlankLines() throws IOException
+	{
+		CsvReader reader = reader("h\r\n\"one\ntwo\"\n\n\nlast\n");
+		reader.next();
+		assertEquals(1, reader.getLine());
+		assertArrayEquals(new String[] { "one\ntwo" }, reader.next());
+		assertEquals(2, reader.getLine());
+		assertArrayEquals(new String[] { "last" }, reader.next());
+		assertEquals(6, reader.getLine());
+	}
+
+	@Test
+	public void refusesMalformedQuotes() throws IOException
+	{
+		assertMalformed("a\"b\n");
+		assertMalformed("\"a\"b\n");
+		assertMalformed("\"unterminated\n");
+	}
+
+	@Test
+	public void refusesAFieldLongerThanTheLimit() throws IOException
+	{
+		assertMalformed("\"" + new String(new char[100]).replace('\0', 'x'));
+	}
+
+	/**
+	 * This method builds a reader with a short field limit
+	 * @param csv the input
+	 * @return the reader
+	 */
+	private static CsvReader reader(String csv)
+	{
+		return new CsvReader(new StringReader(csv), 64);
+	}
+
+	/**
+	 * This method asserts that input is refused as malformed
+	 * @param csv the input
+	 */
+	private static void assertMalformed(String csv) throws IOException
+	{
+		try
+		{
+			reader(csv).next();
+			fail("read malformed CSV " + csv);
+		}
+		catch (CsvFormatException e)
+		{
+			// expected
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.gcu.util.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Tests of writing CSV records
+ * @author Josh Van de Walle
+ *
+ */
+public class CsvWriterTest
+{
+	@Test
+	public void quotesOnlyFieldsThatWouldBreakTheRecord() throws IOException
+	{
+		StringWriter out = new StringWriter();
+		CsvWriter csv = new CsvWriter(out);
+		csv.field("plain").field("a,b").field("say \"hi\"").field("two\nlines").field("cr\r").field((String) null).field("");
+		csv.endRecord();
+		assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"cr\r\",,\r\n", out.toString());
+	}
+
+	@Test
+	public void writesNumbersInPlainNotation() throws IOException
+	{
+		StringWriter out = new StringWriter();
+		CsvWriter csv = new CsvWriter(out);
+		csv.field(-42).field(new BigDecimal("1E+3")).field(new BigDecimal("0.50"));
+		csv.endRecord();
+		assertEquals("-42,1000,0.50\r\n", out.toString());
+	}
+
+	@Test
+	public void readsBackWhatItWrote() throws IOException
+	{
+		String[] fields = { "\"", "\"\"", ",", "a \"quoted\", value", "line\r\nbreak", "" };
+		StringWriter out = new StringWriter();
+		CsvWriter csv = new CsvWriter(out);
+		for (String field : fields)
+		{
+			csv.field(field);
+		}
+		csv.endRecord();
+
+		CsvReader reader = new CsvReader(new StringReader(out.toString()), 64);
+		assertArrayEquals(fields, reader.next());
+	}
+}
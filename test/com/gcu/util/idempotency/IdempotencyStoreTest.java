@@ -0,0 +1,101 @@
+package com.gcu.util.idempotency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.gcu.util.exception.IdempotencyKeyReusedException;
+
+/**
+ * Tests of the IdempotencyStore answering retries and refusing reused keys
+ * @author Josh Van de Walle
+ *
+ */
+public class IdempotencyStoreTest
+{
+	@Test
+	public void aRetryGetsTheStoredResponse()
+	{
+		IdempotencyStore store = new IdempotencyStore();
+		IdempotencyStore.Claim first = store.claim("createOrder:k1", "body");
+		assertTrue(first.isOwner());
+		store.complete(first, "response");
+
+		IdempotencyStore.Claim retry = store.claim("createOrder:k1", "body");
+		assertFalse(retry.isOwner());
+		assertTrue(retry.getResponse().isDone());
+		assertEquals("response", retry.getResponse().join());
+		assertEquals(1, store.getStats().getReplayed());
+	}
+
+	@Test
+	public void aRetryWhileTheWorkRunsWaitsForItsResponse()
+	{
+		IdempotencyStore store = new IdempotencyStore();
+		IdempotencyStore.Claim first = store.claim("createOrder:k1", "body");
+		IdempotencyStore.Claim retry = store.claim("createOrder:k1", "body");
+		assertFalse(retry.isOwner());
+		assertFalse(retry.getResponse().isDone());
+
+		store.complete(first, "response");
+		assertEquals("response", retry.getResponse().join());
+		assertEquals(1, store.getStats().getCoalesced());
+	}
+
+	@Test
+	public void aKeySentWithADifferentRequestIsRefused()
+	{
+		IdempotencyStore store = new IdempotencyStore();
+		store.complete(store.claim("createOrder:k1", "body"), "response");
+		try
+		{
+			store.claim("createOrder:k1", "other body");
+			fail("a reused key was answered");
+		}
+		catch (IdempotencyKeyReusedException e)
+		{
+			// answered with 422 by the service
+		}
+		assertEquals(1, store.getStats().getRejected());
+
+		// the stored response still answers the original request
+		assertEquals("response", store.claim("createOrder:k1", "body").getResponse().join());
+	}
+
+	@Test
+	public void aReleasedKeyIsClaimedAfresh()
+	{
+		IdempotencyStore store = new IdempotencyStore();
+		IdempotencyStore.Claim first = store.claim("createOrder:k1", "body");
+		IdempotencyStore.Claim waiting = store.claim("createOrder:k1", "body");
+		store.release(first, "failed");
+
+		// the waiting request is told of the failure, and a retry does the work again
+		assertEquals("failed", waiting.getResponse().join());
+		assertTrue(store.claim("createOrder:k1", "body").isOwner());
+	}
+
+	@Test
+	public void theSameKeyOnAnotherEndpointIsAnotherKey()
+	{
+		IdempotencyStore store = new IdempotencyStore();
+		store.complete(store.claim("createOrder:k1", "body"), "response");
+		assertTrue(store.claim("createOrders:k1", "other body").isOwner());
+	}
+
+	@Test
+	public void theOldestKeysAreEvictedOnceTheStoreIsFull()
+	{
+		IdempotencyStore store = new IdempotencyStore();
+		store.setMaxEntries(2);
+		store.complete(store.claim("k1", "body"), "one");
+		store.complete(store.claim("k2", "body"), "two");
+		store.complete(store.claim("k3", "body"), "three");
+
+		assertEquals(1, store.getStats().getEvictions());
+		assertTrue(store.claim("k1", "body").isOwner());
+	}
+}
@@ -0,0 +1,104 @@
+package com.gcu.util.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import com.gcu.data.OrdersDataService;
+import com.gcu.data.TestDatabase;
+import com.gcu.model.Order;
+
+/**
+ * Tests of the OrderIngestionQueue replaying its journal after a crash against embedded Derby
+ * @author Josh Van de Walle
+ *
+ */
+public class OrderIngestionQueueTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TestDatabase database;
+	private OrdersDataService service;
+	private File journalDir;
+
+	@Before
+	public void setUp()
+	{
+		database = new TestDatabase();
+		service = database.getDataService();
+		journalDir = new File(folder.getRoot(), "journal");
+	}
+
+	@After
+	public void tearDown()
+	{
+		database.close();
+	}
+
+	@Test
+	public void replayWritesEachJournaledOrderOnce() throws Exception
+	{
+		// orders journaled before a crash: the first was written to the database but not checkpointed, the second
+		// was not written, and the third has the order number of a different order
+		OrderJournal journal = new OrderJournal(journalDir, 1024 * 1024, false);
+		journal.open();
+		journal.append(new Order("REPLAY-1", "Widget", 150, 1));
+		journal.append(new Order("REPLAY-2", "Widget", 250, 2));
+		journal.append(new Order("REPLAY-3", "Widget", 350, 3));
+		journal.sync();
+		journal.close();
+		service.create(new Order("REPLAY-1", "Widget", 150, 1));
+		service.create(new Order("REPLAY-3", "Gadget", 999, 9));
+
+		// start the queue, which replays the journal, and let it write
+		OrderIngestionQueue queue = newQueue();
+		queue.afterPropertiesSet();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (queue.getStats().getWritten() + queue.getStats().getRejected() < 3 && System.nanoTime() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		IngestionStats stats = queue.getStats();
+		queue.destroy();
+
+		// the order already written counts as written without a second row, and the different one is refused
+		assertEquals(2, stats.getWritten());
+		assertEquals(1, stats.getRejected());
+		assertEquals(1, database.count("REPLAY-1"));
+		assertEquals(1, database.count("REPLAY-2"));
+		assertEquals(250, service.findByOrderNo("REPLAY-2").getPriceCents());
+		assertEquals("Gadget", service.findByOrderNo("REPLAY-3").getProductName());
+
+		// the journal was checkpointed, so nothing is replayed on the next start
+		OrderJournal reopened = new OrderJournal(journalDir, 1024 * 1024, false);
+		assertTrue(reopened.open().isEmpty());
+		reopened.close();
+	}
+
+	/**
+	 * This method builds an enabled queue over the test database and journal
+	 * @return the queue, not yet started
+	 */
+	private OrderIngestionQueue newQueue()
+	{
+		OrderIngestionQueue queue = new OrderIngestionQueue();
+		queue.setEnabled(true);
+		queue.setJournalDir(journalDir.getPath());
+		queue.setFsync(false);
+		queue.setFlushIntervalMillis(10);
+		queue.setRetryMillis(10);
+		queue.setService(service);
+		queue.setTransactionManager(new DataSourceTransactionManager(database.getDataSource()));
+		return queue;
+	}
+}
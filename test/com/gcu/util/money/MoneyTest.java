@@ -0,0 +1,99 @@
+package com.gcu.util.money;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Tests of reading and writing Money amounts
+ * @author Josh Van de Walle
+ *
+ */
+public class MoneyTest
+{
+	@Test
+	public void parsesWholeAndDecimalAmounts()
+	{
+		assertEquals(999, Money.parse("9.99"));
+		assertEquals(-300, Money.parse("-3"));
+		assertEquals(100, Money.parse("+1"));
+		assertEquals(1250, Money.parse("12.5"));
+		assertEquals(50, Money.parse(".5"));
+		assertEquals(500, Money.parse("5."));
+		assertEquals(0, Money.parse("-0.00"));
+	}
+
+	@Test
+	public void acceptsTrailingZerosPastTheCents()
+	{
+		assertEquals(150, Money.parse("1.500"));
+		assertEquals(150, Money.parse("1.5000000000000000000000"));
+	}
+
+	@Test
+	public void leavesExponentsToBigDecimal()
+	{
+		assertEquals(10000, Money.parse("1e2"));
+		assertEquals(15, Money.parse("1.5E-1"));
+		assertRefused("1E-3");
+	}
+
+	@Test
+	public void parsesTheLimitsOfALong()
+	{
+		assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+		assertEquals(Long.MIN_VALUE, Money.parse("-92233720368547758.08"));
+		assertRefused("92233720368547758.08");
+		assertRefused("-92233720368547758.09");
+		assertRefused("100000000000000000000");
+	}
+
+	@Test
+	public void refusesWhatIsNotAnAmount()
+	{
+		assertRefused("");
+		assertRefused("-");
+		assertRefused(".");
+		assertRefused("1.2.3");
+		assertRefused("1,50");
+		assertRefused(" 1");
+		assertRefused("abc");
+		assertRefused("--1");
+	}
+
+	@Test
+	public void refusesFractionsOfACent()
+	{
+		assertRefused("1.001");
+		assertRefused("0.005");
+	}
+
+	@Test
+	public void formatsWithTwoDecimalPlaces()
+	{
+		assertEquals("9.99", Money.format(999));
+		assertEquals("-0.05", Money.format(-5));
+		assertEquals("3.00", Money.format(300));
+		assertEquals(new BigDecimal("12.50"), Money.toDecimal(1250));
+	}
+
+	/**
+	 * This method asserts that text is not read as an amount
+	 * @param text the text
+	 */
+	private static void assertRefused(String text)
+	{
+		try
+		{
+			Money.parse(text);
+			fail("read \"" + text + "\" as an amount");
+		}
+		catch (NumberFormatException e)
+		{
+			// expected
+		}
+	}
+}